@@ -0,0 +1,191 @@
+package eightbitlab.com.blurview;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide pool of the snapshot bitmaps, so the BlurViews changing their size reuse the memory
+ * instead of allocating new bitmaps all the time.
+ * <p>
+ * Bitmaps are allocated with a bucketed pixel count and reconfigured to the requested size on API 19+,
+ * so a slightly different size still fits a pooled bitmap. Below API 19 only the exact size matches.
+ * The least recently released bitmaps are dropped once the pooled bytes exceed the cap.
+ * <p>
+ * Pooled bitmaps are reconfigured and erased when they're handed out, so a bitmap the last frame may still draw
+ * has to go through {@link #releaseAfterNextFrame(Bitmap)} instead.
+ * <p>
+ * Thread safe, the bitmaps can be released from the worker thread.
+ */
+final class BlurBitmapPool {
+
+    static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    // Pixel counts up to this share a single bucket
+    private static final int MIN_BUCKET_PIXELS = 64 * 64;
+    // Each power of two range is split into this many buckets, so a bitmap is at most a quarter larger than needed
+    private static final int BUCKETS_PER_RANGE = 8;
+    // A pooled bitmap can be at most that much larger than requested
+    private static final int MAX_REUSE_RATIO = 2;
+
+    // Least recently released first
+    private static final List<Bitmap> pooled = new ArrayList<>();
+    private static long pooledBytes;
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    // Released during the current frame, a display list may still draw them
+    private static final List<Bitmap> retiring = new ArrayList<>();
+    // Survived a frame boundary, pooled on the next one
+    private static final List<Bitmap> retired = new ArrayList<>();
+    private static boolean frameCallbackPosted;
+    private static final Choreographer.FrameCallback retireCallback = frameTimeNanos -> onFrame();
+
+    private BlurBitmapPool() {
+    }
+
+    /**
+     * @return a transparent mutable bitmap of the exact requested size, either pooled or a new one.
+     * Should be given back via {@link #release(Bitmap)} once it's no longer used.
+     */
+    @NonNull
+    static synchronized Bitmap acquire(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap reused = findReusable(width, height, config);
+        if (reused != null) {
+            pooled.remove(reused);
+            pooledBytes -= byteCount(reused);
+            if (reused.getWidth() != width || reused.getHeight() != height) {
+                reused.reconfigure(width, height, config);
+            }
+            reused.eraseColor(Color.TRANSPARENT);
+            return reused;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        // Allocated for the whole bucket, so the bitmap can be reconfigured to a bit larger size later
+        int bucketHeight = (int) Math.ceil((double) bucketPixels((long) width * height) / width);
+        Bitmap bitmap = Bitmap.createBitmap(width, bucketHeight, config);
+        bitmap.reconfigure(width, height, config);
+        return bitmap;
+    }
+
+    /**
+     * Gives the bitmap back to the pool. The bitmap must not be used by the caller anymore.
+     */
+    static synchronized void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || pooled.contains(bitmap)) {
+            return;
+        }
+        pooled.add(bitmap);
+        pooledBytes += byteCount(bitmap);
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Gives back a bitmap that has been displayed, once the next frame has been drawn without it.
+     * Until then the last recorded display list may still reference it, reconfiguring or erasing it would show up.
+     * Main thread only.
+     */
+    static void releaseAfterNextFrame(@Nullable Bitmap bitmap) {
+        synchronized (BlurBitmapPool.class) {
+            if (bitmap == null || retiring.contains(bitmap) || retired.contains(bitmap)) {
+                return;
+            }
+            retiring.add(bitmap);
+            if (frameCallbackPosted) {
+                return;
+            }
+            frameCallbackPosted = true;
+        }
+        Choreographer.getInstance().postFrameCallback(retireCallback);
+    }
+
+    private static void onFrame() {
+        synchronized (BlurBitmapPool.class) {
+            for (Bitmap bitmap : retired) {
+                release(bitmap);
+            }
+            retired.clear();
+            retired.addAll(retiring);
+            retiring.clear();
+            frameCallbackPosted = !retired.isEmpty();
+            if (!frameCallbackPosted) {
+                return;
+            }
+        }
+        Choreographer.getInstance().postFrameCallback(retireCallback);
+    }
+
+    /**
+     * Drops the least recently released bitmaps until the pool fits the given size
+     */
+    static synchronized void trimToSize(long bytes) {
+        while (pooledBytes > bytes && !pooled.isEmpty()) {
+            // Not recycled, left to the GC once nothing references it anymore
+            pooledBytes -= byteCount(pooled.remove(0));
+        }
+    }
+
+    static synchronized void setMaxBytes(long bytes) {
+        maxBytes = bytes;
+        trimToSize(bytes);
+    }
+
+    static synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * @return the pixel count the bitmaps are allocated for, at least the requested one
+     */
+    static long bucketPixels(long pixels) {
+        if (pixels <= MIN_BUCKET_PIXELS) {
+            return MIN_BUCKET_PIXELS;
+        }
+        long range = Long.highestOneBit(pixels - 1) << 1;
+        long step = range / BUCKETS_PER_RANGE;
+        return (pixels + step - 1) / step * step;
+    }
+
+    /**
+     * @return the smallest pooled bitmap that can be turned into the requested one
+     */
+    @Nullable
+    private static Bitmap findReusable(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap best = null;
+        for (Bitmap bitmap : pooled) {
+            if (bitmap.getConfig() != config) {
+                continue;
+            }
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    return bitmap;
+                }
+                continue;
+            }
+            long available = bitmap.getAllocationByteCount();
+            long required = (long) width * height * bytesPerPixel(bitmap);
+            if (available >= required && available <= required * MAX_REUSE_RATIO
+                    && (best == null || available < best.getAllocationByteCount())) {
+                best = bitmap;
+            }
+        }
+        return best;
+    }
+
+    private static int bytesPerPixel(@NonNull Bitmap bitmap) {
+        return bitmap.getRowBytes() / bitmap.getWidth();
+    }
+
+    private static long byteCount(@NonNull Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+}
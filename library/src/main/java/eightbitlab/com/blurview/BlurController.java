@@ -2,6 +2,8 @@ package eightbitlab.com.blurview;
 
 import android.graphics.Canvas;
 
+import androidx.annotation.NonNull;
+
 public interface BlurController extends BlurViewFacade {
 
     float DEFAULT_SCALE_FACTOR = 4f;
@@ -23,4 +25,10 @@ public interface BlurController extends BlurViewFacade {
      * Frees allocated resources
      */
     void destroy();
+
+    /**
+     * @return counters describing the blur work done by this controller
+     */
+    @NonNull
+    BlurStats getStats();
 }
@@ -0,0 +1,234 @@
+package eightbitlab.com.blurview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process-wide executor for all the blur work moved off the main thread.
+ * <p>
+ * A couple of display priority threads with a bounded queue, shared by all BlurViews.
+ * A job submitted with a key replaces the work of the job of the same key that hasn't started yet,
+ * in place, so a BlurView never has more than one job waiting and never more than one queue slot.
+ * Waiting jobs can be cancelled by their key.
+ * If the queue is full, the job waits in an overflow list until a worker finishes a job.
+ * It never runs on the submitting thread, which is usually the main thread,
+ * and every submitted job is either executed or explicitly cancelled.
+ */
+final class BlurExecutor {
+
+    private static final int QUEUE_CAPACITY = 32;
+    private static final int THREAD_COUNT = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor executor = createExecutor();
+    // Jobs waiting in the queue by their key
+    private static final Map<Object, Job> pending = new HashMap<>();
+    // Rejected by the full queue, guarded by pending
+    private static final ArrayDeque<Runnable> overflow = new ArrayDeque<>();
+    @Nullable
+    private static Handler mainHandler;
+
+    // Metrics
+    private static final AtomicLong executedJobs = new AtomicLong();
+    private static final AtomicLong replacedJobs = new AtomicLong();
+    private static final AtomicLong overflowJobs = new AtomicLong();
+    private static final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private BlurExecutor() {
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor createExecutor() {
+        RejectedExecutionHandler deferToOverflow = (job, pool) -> {
+            overflowJobs.incrementAndGet();
+            synchronized (pending) {
+                overflow.add(job);
+            }
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(() -> {
+                // Blur results are displayed on the next frames, same priority as the rendering
+                Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+                runnable.run();
+            }, "BlurView-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, deferToOverflow);
+        // No idle threads while no BlurView is blurring in background
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * @param key identifies the jobs replacing each other, usually the controller submitting them.
+     *            Null if the job must not be replaced.
+     */
+    static void execute(@Nullable Object key, @NonNull Runnable job) {
+        Job wrapped = new Job(key, job);
+        if (key != null) {
+            synchronized (pending) {
+                Job previous = pending.get(key);
+                if (previous != null && previous.replace(job)) {
+                    // Keeps its place in the queue, only the work is the latest one
+                    replacedJobs.incrementAndGet();
+                    return;
+                }
+                pending.put(key, wrapped);
+            }
+        }
+        executor.execute(wrapped);
+    }
+
+    /**
+     * Moves the jobs rejected by the full queue into the slots that have been freed
+     */
+    private static void drainOverflow() {
+        while (executor.getQueue().remainingCapacity() > 0) {
+            Runnable job;
+            synchronized (pending) {
+                job = overflow.poll();
+            }
+            if (job == null) {
+                return;
+            }
+            executor.execute(job);
+        }
+    }
+
+    static void execute(@NonNull Runnable job) {
+        execute(null, job);
+    }
+
+    /**
+     * @return true if a waiting job of the key has been cancelled and will never run,
+     * false if there was none or it has already started
+     */
+    static boolean cancel(@NonNull Object key) {
+        Job job;
+        synchronized (pending) {
+            job = pending.remove(key);
+        }
+        return job != null && job.cancel();
+    }
+
+    static void postToMainThread(@NonNull Runnable result) {
+        getMainHandler().post(result);
+    }
+
+    @NonNull
+    private static synchronized Handler getMainHandler() {
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mainHandler;
+    }
+
+    /**
+     * @return jobs waiting for a thread, cancelled ones included until they're dequeued
+     */
+    static int getQueueDepth() {
+        synchronized (pending) {
+            return executor.getQueue().size() + overflow.size();
+        }
+    }
+
+    /**
+     * @return average time between submitting and starting a job
+     */
+    static float getAverageWaitMillis() {
+        long executed = executedJobs.get();
+        return executed > 0 ? totalWaitNanos.get() / 1_000_000f / executed : 0f;
+    }
+
+    static long getExecutedJobs() {
+        return executedJobs.get();
+    }
+
+    /**
+     * @return jobs replaced by a newer job of the same key before they started
+     */
+    static long getReplacedJobs() {
+        return replacedJobs.get();
+    }
+
+    /**
+     * @return jobs that waited for a free queue slot because the queue was full
+     */
+    static long getOverflowJobs() {
+        return overflowJobs.get();
+    }
+
+    static final class Job implements Runnable {
+        @Nullable
+        private final Object key;
+        // The latest work, null once it's been claimed by running or cancelling
+        private final AtomicReference<Runnable> work;
+        private final long submitTime = System.nanoTime();
+
+        Job(@Nullable Object key, @NonNull Runnable work) {
+            this.key = key;
+            this.work = new AtomicReference<>(work);
+        }
+
+        /**
+         * @return false if the job has already started or has been cancelled
+         */
+        boolean replace(@NonNull Runnable latest) {
+            Runnable current = work.get();
+            while (current != null) {
+                if (work.compareAndSet(current, latest)) {
+                    return true;
+                }
+                current = work.get();
+            }
+            return false;
+        }
+
+        /**
+         * @return false if the job has already started or has been cancelled
+         */
+        boolean cancel() {
+            return work.getAndSet(null) != null;
+        }
+
+        @Override
+        public void run() {
+            Runnable claimed = work.getAndSet(null);
+            if (claimed == null) {
+                drainOverflow();
+                return;
+            }
+            if (key != null) {
+                synchronized (pending) {
+                    if (pending.get(key) == this) {
+                        pending.remove(key);
+                    }
+                }
+            }
+            executedJobs.incrementAndGet();
+            totalWaitNanos.addAndGet(System.nanoTime() - submitTime);
+            try {
+                claimed.run();
+            } finally {
+                drainOverflow();
+            }
+        }
+    }
+}
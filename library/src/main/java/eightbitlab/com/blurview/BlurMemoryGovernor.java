@@ -0,0 +1,195 @@
+package eightbitlab.com.blurview;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide memory budget for everything the BlurViews keep in memory:
+ * snapshot bitmaps of the controllers, cached blur results and the {@link BlurBitmapPool}.
+ * <p>
+ * When the budget is exceeded or the system asks to trim memory, the caches are shed first.
+ * If that's not enough, the consumers lower their snapshot resolution.
+ * Once the UI is hidden, the consumers release everything they can rebuild.
+ * <p>
+ * Main thread only, consumers resize their bitmaps while being trimmed.
+ */
+final class BlurMemoryGovernor {
+
+    /**
+     * Something holding memory on behalf of a BlurView
+     */
+    interface Consumer {
+        /**
+         * @return bytes currently held
+         */
+        long getRetainedBytes();
+
+        /**
+         * Frees the memory that is only kept to save some work later
+         */
+        void trimCaches();
+
+        /**
+         * Lowers the snapshot resolution, if possible
+         */
+        void reduceResolution();
+
+        /**
+         * Releases everything that can be rebuilt once the BlurView is drawn again, the UI is hidden
+         */
+        void hibernate();
+    }
+
+    // Same share of the heap a single BlurPerformanceOptimizer used to take on its own
+    private static final long BUDGET_BYTES = Runtime.getRuntime().maxMemory() / 8;
+
+    private static final Set<Consumer> consumers = Collections.newSetFromMap(new WeakHashMap<>());
+    private static boolean callbacksRegistered;
+    // Enforcing the budget frees and allocates bitmaps, which would enforce it again
+    private static boolean enforcing;
+
+    private static final ComponentCallbacks2 callbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            BlurMemoryGovernor.onTrimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            BlurMemoryGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+    };
+
+    private BlurMemoryGovernor() {
+    }
+
+    /**
+     * The consumer is referenced weakly, but should still be unregistered once it's destroyed
+     */
+    static synchronized void register(@NonNull Consumer consumer) {
+        consumers.add(consumer);
+    }
+
+    /**
+     * Also starts listening to the system memory callbacks
+     */
+    static synchronized void register(@NonNull Consumer consumer, @NonNull Context context) {
+        consumers.add(consumer);
+        if (!callbacksRegistered) {
+            context.getApplicationContext().registerComponentCallbacks(callbacks);
+            callbacksRegistered = true;
+        }
+    }
+
+    static synchronized void unregister(@NonNull Consumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    static long getBudgetBytes() {
+        return BUDGET_BYTES;
+    }
+
+    /**
+     * @return bytes held by all consumers and the bitmap pool
+     */
+    static synchronized long getTotalBytes() {
+        long total = BlurBitmapPool.getPooledBytes();
+        for (Consumer consumer : consumers) {
+            total += consumer.getRetainedBytes();
+        }
+        return total;
+    }
+
+    /**
+     * @param extraBytes what the caller is about to allocate on top of the current total
+     * @return true if half of the budget would still be free, so a restored resolution isn't downgraded again right away
+     */
+    static synchronized boolean hasHeadroom(long extraBytes) {
+        return getTotalBytes() + extraBytes <= BUDGET_BYTES / 2;
+    }
+
+    /**
+     * Should be called after a consumer allocates something
+     */
+    static synchronized void enforceBudget() {
+        if (enforcing || getTotalBytes() <= BUDGET_BYTES) {
+            return;
+        }
+        enforcing = true;
+        try {
+            trimCaches();
+            // Largest first, until the budget is met
+            List<Consumer> bySize = snapshot();
+            Collections.sort(bySize, (first, second) -> Long.compare(second.getRetainedBytes(), first.getRetainedBytes()));
+            for (Consumer consumer : bySize) {
+                if (getTotalBytes() <= BUDGET_BYTES) {
+                    break;
+                }
+                consumer.reduceResolution();
+                BlurBitmapPool.trimToSize(0);
+            }
+        } finally {
+            enforcing = false;
+        }
+    }
+
+    static synchronized void onTrimMemory(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return;
+        }
+        enforcing = true;
+        try {
+            trimCaches();
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                // Nothing is visible, rebuilt lazily on the next frame
+                for (Consumer consumer : snapshot()) {
+                    consumer.hibernate();
+                }
+                BlurBitmapPool.trimToSize(0);
+            }
+            // The app is about to be killed, or the foreground process is short on memory
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE
+                    || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                reduceResolution();
+            }
+        } finally {
+            enforcing = false;
+        }
+    }
+
+    private static void trimCaches() {
+        for (Consumer consumer : snapshot()) {
+            consumer.trimCaches();
+        }
+        BlurBitmapPool.trimToSize(0);
+    }
+
+    private static void reduceResolution() {
+        for (Consumer consumer : snapshot()) {
+            consumer.reduceResolution();
+        }
+        // Previous bitmaps have been released to the pool
+        BlurBitmapPool.trimToSize(0);
+    }
+
+    /**
+     * Consumers may unregister themselves while being trimmed
+     */
+    @NonNull
+    private static List<Consumer> snapshot() {
+        return new ArrayList<>(consumers);
+    }
+}
@@ -0,0 +1,173 @@
+package eightbitlab.com.blurview;
+
+import android.graphics.Canvas;
+import android.graphics.Outline;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.graphics.RegionIterator;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewOutlineProvider;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the part of a BlurView covered by its own opaque children.
+ * The blur under them is never visible, so it doesn't have to be captured, blurred or drawn.
+ */
+final class BlurOcclusion {
+
+    private final List<Rect> coveredRects = new ArrayList<>();
+    private int coveredCount;
+    private final Region uncovered = new Region();
+    private final Rect uncoveredBounds = new Rect();
+    private final Rect regionRect = new Rect();
+    private final Rect childRect = new Rect();
+    private Outline outline;
+    private float coveredFraction;
+    // BlurView size of the last update
+    private int lastWidth = -1;
+    private int lastHeight = -1;
+
+    /**
+     * Recomputes the covered area from the current state of the BlurView children.
+     * Cheap enough for every frame, the area is only measured when the covered rects change.
+     *
+     * @return true if the covered rects have changed since the last call
+     */
+    boolean update(@NonNull View blurView) {
+        int width = blurView.getWidth();
+        int height = blurView.getHeight();
+        int previousCount = coveredCount;
+        boolean changed = false;
+        coveredCount = 0;
+        if (blurView instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) blurView;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                if (findOpaqueBounds(group.getChildAt(i), childRect) && childRect.intersect(0, 0, width, height)) {
+                    if (coveredCount == coveredRects.size()) {
+                        coveredRects.add(new Rect());
+                    }
+                    Rect rect = coveredRects.get(coveredCount++);
+                    if (!rect.equals(childRect)) {
+                        rect.set(childRect);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        if (!changed && coveredCount == previousCount && width == lastWidth && height == lastHeight) {
+            return false;
+        }
+        lastWidth = width;
+        lastHeight = height;
+        measure(width, height);
+        return true;
+    }
+
+    private void measure(int width, int height) {
+        if (coveredCount == 0) {
+            uncoveredBounds.set(0, 0, width, height);
+            coveredFraction = 0f;
+            return;
+        }
+
+        uncovered.set(0, 0, width, height);
+        for (int i = 0; i < coveredCount; i++) {
+            uncovered.op(coveredRects.get(i), Region.Op.DIFFERENCE);
+        }
+        long uncoveredArea = 0;
+        RegionIterator iterator = new RegionIterator(uncovered);
+        while (iterator.next(regionRect)) {
+            uncoveredArea += (long) regionRect.width() * regionRect.height();
+        }
+        if (!uncovered.getBounds(uncoveredBounds)) {
+            uncoveredBounds.setEmpty();
+        }
+        long area = (long) width * height;
+        coveredFraction = area > 0 ? 1f - (float) uncoveredArea / area : 0f;
+    }
+
+    /**
+     * @return bounds of the part of the BlurView not covered by opaque children, in BlurView coordinates
+     */
+    @NonNull
+    Rect getUncoveredBounds() {
+        return uncoveredBounds;
+    }
+
+    boolean isFullyCovered() {
+        return coveredCount > 0 && uncoveredBounds.isEmpty();
+    }
+
+    float getCoveredFraction() {
+        return coveredFraction;
+    }
+
+    /**
+     * Excludes the covered area from the further drawing on the canvas
+     */
+    @SuppressWarnings("deprecation")
+    void clipOutCovered(@NonNull Canvas canvas) {
+        for (int i = 0; i < coveredCount; i++) {
+            Rect rect = coveredRects.get(i);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                canvas.clipOutRect(rect);
+            } else {
+                canvas.clipRect(rect, Region.Op.DIFFERENCE);
+            }
+        }
+    }
+
+    /**
+     * @return false if the child doesn't fully cover anything
+     */
+    private boolean findOpaqueBounds(@NonNull View child, @NonNull Rect outBounds) {
+        if (child.getVisibility() != View.VISIBLE || child.getAlpha() < 1f || !child.hasIdentityMatrix()) {
+            return false;
+        }
+        Drawable background = child.getBackground();
+        boolean opaque = child.isOpaque()
+                || (background != null && background.getOpacity() == PixelFormat.OPAQUE);
+        if (!opaque) {
+            return false;
+        }
+        int left = child.getLeft() + (int) child.getTranslationX();
+        int top = child.getTop() + (int) child.getTranslationY();
+        outBounds.set(left, top, left + child.getWidth(), top + child.getHeight());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && child.getClipToOutline()) {
+            return findOutlineBounds(child, left, top, outBounds);
+        }
+        return !outBounds.isEmpty();
+    }
+
+    /**
+     * Narrows the bounds down to the rectangle fully inside the child's outline
+     */
+    private boolean findOutlineBounds(@NonNull View child, int left, int top, @NonNull Rect outBounds) {
+        ViewOutlineProvider provider = child.getOutlineProvider();
+        if (provider == null) {
+            return !outBounds.isEmpty();
+        }
+        if (outline == null) {
+            outline = new Outline();
+        }
+        outline.setEmpty();
+        provider.getOutline(child, outline);
+        // Not a (rounded) rectangle, can't tell what's covered
+        if (!outline.getRect(outBounds)) {
+            return false;
+        }
+        int radius = (int) Math.ceil(outline.getRadius());
+        outBounds.offset(left, top);
+        // Rounded corners are cut off the covered area
+        outBounds.inset(radius, radius);
+        return !outBounds.isEmpty();
+    }
+}
@@ -7,9 +7,6 @@ import android.os.Looper;
 import android.util.LruCache;
 import androidx.annotation.NonNull;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -36,18 +33,39 @@ public class BlurPerformanceOptimizer {
     private static final float MIN_QUALITY_SCALE = 0.5f;
     private static final float MAX_QUALITY_SCALE = 1.0f;
     
-    // Multi-threading support
-    private final ExecutorService backgroundExecutor;
+    // Background work goes to the BlurExecutor shared by all BlurViews
     private final Handler mainHandler;
     
     // Performance statistics
     private volatile long totalBlurTime = 0;
     private volatile int blurOperations = 0;
     
+    // Lets the global memory budget account and shed the cache
+    private final BlurMemoryGovernor.Consumer memoryConsumer = new BlurMemoryGovernor.Consumer() {
+        @Override
+        public long getRetainedBytes() {
+            return blurCache.size();
+        }
+
+        @Override
+        public void trimCaches() {
+            clearCache();
+        }
+
+        @Override
+        public void reduceResolution() {
+            // Cached results are only dropped, never downscaled
+        }
+
+        @Override
+        public void hibernate() {
+            clearCache();
+        }
+    };
+    
     public BlurPerformanceOptimizer() {
-        // Initialize cache with memory-based sizing
-        int maxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
-        int cacheSize = maxMemory / 8; // Use 1/8th of available memory
+        // The cache alone may take the whole budget shared by all BlurViews, the governor trims it when exceeded
+        int cacheSize = (int) Math.min(Integer.MAX_VALUE, BlurMemoryGovernor.getBudgetBytes());
         
         blurCache = new LruCache<String, CachedBlurResult>(cacheSize) {
             @Override
@@ -56,10 +74,8 @@ public class BlurPerformanceOptimizer {
             }
         };
         
-        // Initialize background thread pool for heavy operations
-        int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
-        backgroundExecutor = Executors.newFixedThreadPool(threadCount);
         mainHandler = new Handler(Looper.getMainLooper());
+        BlurMemoryGovernor.register(memoryConsumer);
     }
     
     /**
@@ -69,6 +85,7 @@ public class BlurPerformanceOptimizer {
                                float blurRadius, int overlayColor) {
         CachedBlurResult result = new CachedBlurResult(blurredBitmap, blurRadius, overlayColor);
         blurCache.put(key, result);
+        executeOnMain(BlurMemoryGovernor::enforceBudget);
     }
     
     /**
@@ -139,7 +156,9 @@ public class BlurPerformanceOptimizer {
                 blurOperations,
                 blurCache.size(),
                 blurCache.hitCount(),
-                blurCache.missCount()
+                blurCache.missCount(),
+                BlurExecutor.getQueueDepth(),
+                BlurExecutor.getAverageWaitMillis()
             );
         }
     }
@@ -158,10 +177,29 @@ public class BlurPerformanceOptimizer {
     }
     
     /**
-     * Executes a task on background thread for heavy operations.
+     * Executes a task on the background threads shared by all BlurViews.
      */
     public void executeOnBackground(@NonNull Runnable task) {
-        backgroundExecutor.execute(task);
+        BlurExecutor.execute(task);
+    }
+
+    /**
+     * Executes a task on the background threads shared by all BlurViews.
+     * A task that hasn't started yet is replaced by the next one with the same key, only the latest one runs.
+     *
+     * @param key usually the BlurView the task is done for
+     */
+    public void executeLatestOnBackground(@NonNull Object key, @NonNull Runnable task) {
+        BlurExecutor.execute(key, task);
+    }
+
+    /**
+     * Cancels the task submitted with the given key, if it hasn't started yet.
+     *
+     * @return true if the task has been cancelled
+     */
+    public boolean cancelBackgroundTask(@NonNull Object key) {
+        return BlurExecutor.cancel(key);
     }
     
     /**
@@ -201,12 +239,20 @@ public class BlurPerformanceOptimizer {
     }
     
     /**
-     * Releases resources and shuts down background threads.
+     * Releases resources. The background threads are shared, so the optimizer stays usable for the background tasks.
      */
     public void destroy() {
-        backgroundExecutor.shutdown();
+        // Still registered in the memory governor, the BlurView keeps using the optimizer after a re-attach.
+        // The governor only references it weakly.
         clearCache();
     }
+
+    /**
+     * @return bytes held by the cached blur results
+     */
+    long getRetainedBytes() {
+        return memoryConsumer.getRetainedBytes();
+    }
     
     /**
      * Cached blur result container.
@@ -256,15 +302,21 @@ public class BlurPerformanceOptimizer {
         public final int cacheSize;
         public final long cacheHits;
         public final long cacheMisses;
+        // Background executor shared by all BlurViews
+        public final int backgroundQueueDepth;
+        public final float averageBackgroundWaitMillis;
         
         PerformanceStats(float averageFrameTime, float currentQualityScale, 
-                        int totalBlurOperations, int cacheSize, long cacheHits, long cacheMisses) {
+                        int totalBlurOperations, int cacheSize, long cacheHits, long cacheMisses,
+                        int backgroundQueueDepth, float averageBackgroundWaitMillis) {
             this.averageFrameTime = averageFrameTime;
             this.currentQualityScale = currentQualityScale;
             this.totalBlurOperations = totalBlurOperations;
             this.cacheSize = cacheSize;
             this.cacheHits = cacheHits;
             this.cacheMisses = cacheMisses;
+            this.backgroundQueueDepth = backgroundQueueDepth;
+            this.averageBackgroundWaitMillis = averageBackgroundWaitMillis;
         }
         
         public float getCacheHitRate() {
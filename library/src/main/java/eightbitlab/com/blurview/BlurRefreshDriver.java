@@ -0,0 +1,117 @@
+package eightbitlab.com.blurview;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Refreshes the blur of registered BlurViews once per vsync while something under them is animating.
+ * A BlurView goes idle after a quiet period without any detected activity, and the frame callback stops
+ * while all of them are idle. An idle BlurView is woken up by {@link #wake(BlurView)} once activity is detected again.
+ * <p>
+ * Main thread only.
+ */
+final class BlurRefreshDriver implements Choreographer.FrameCallback {
+
+    // How long a BlurView is kept refreshing after the last detected activity
+    static final long QUIET_PERIOD_NANOS = 500_000_000L;
+    // Refreshed on the next frame, the quiet period starts from there
+    private static final long PENDING = Long.MIN_VALUE;
+    // Not refreshed until woken up
+    private static final long IDLE = Long.MAX_VALUE;
+
+    private static BlurRefreshDriver instance;
+
+    private final List<BlurView> blurViews = new ArrayList<>();
+    // Same order as blurViews
+    private long[] lastActivityTimes = new long[4];
+    private boolean running;
+
+    private BlurRefreshDriver() {
+    }
+
+    @NonNull
+    static BlurRefreshDriver getInstance() {
+        if (instance == null) {
+            instance = new BlurRefreshDriver();
+        }
+        return instance;
+    }
+
+    /**
+     * Keeps the BlurView registered until {@link #unregister(BlurView)}, starting with a refresh on the next frame
+     */
+    void register(@NonNull BlurView blurView) {
+        int index = blurViews.indexOf(blurView);
+        if (index == -1) {
+            index = blurViews.size();
+            blurViews.add(blurView);
+            if (index == lastActivityTimes.length) {
+                lastActivityTimes = Arrays.copyOf(lastActivityTimes, index * 2);
+            }
+        }
+        lastActivityTimes[index] = PENDING;
+        start();
+    }
+
+    void unregister(@NonNull BlurView blurView) {
+        int index = blurViews.indexOf(blurView);
+        if (index != -1) {
+            blurViews.remove(index);
+            System.arraycopy(lastActivityTimes, index + 1, lastActivityTimes, index, blurViews.size() - index);
+        }
+        if (blurViews.isEmpty() && running) {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * Resumes refreshing an idle BlurView, if it detects any activity.
+     * Cheap enough to be called on every traversal.
+     */
+    void wake(@NonNull BlurView blurView) {
+        int index = blurViews.indexOf(blurView);
+        if (index != -1 && lastActivityTimes[index] == IDLE && blurView.detectRefreshActivity()) {
+            lastActivityTimes[index] = PENDING;
+            start();
+        }
+    }
+
+    private void start() {
+        if (!running) {
+            running = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        boolean active = false;
+        for (int i = blurViews.size() - 1; i >= 0; i--) {
+            long lastActivityTime = lastActivityTimes[i];
+            if (lastActivityTime == IDLE) {
+                continue;
+            }
+            BlurView blurView = blurViews.get(i);
+            if (blurView.detectRefreshActivity() || lastActivityTime == PENDING) {
+                lastActivityTimes[i] = frameTimeNanos;
+                blurView.forceBlurUpdate();
+                active = true;
+            } else if (frameTimeNanos - lastActivityTime > QUIET_PERIOD_NANOS) {
+                lastActivityTimes[i] = IDLE;
+            } else {
+                active = true;
+            }
+        }
+        if (active) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package eightbitlab.com.blurview;
+
+/**
+ * Counters describing how much blur work a controller actually did.
+ * Obtained via {@link BlurView#getBlurStats()}.
+ */
+public class BlurStats {
+
+    private long snapshotCacheHits;
+    private long snapshotCacheMisses;
+    private long incrementalBlurs;
+    private float coveredFraction;
+    private long coalescedUpdateRequests;
+    private boolean fusedEffectsActive;
+    private boolean sharedNodeActive;
+    private long bitmapReallocations;
+
+    /**
+     * @return how many times a captured snapshot was identical to the previous one,
+     * so the previous blurred bitmap was reused instead of blurring again
+     */
+    public long getSnapshotCacheHits() {
+        return snapshotCacheHits;
+    }
+
+    /**
+     * @return how many times a captured snapshot had to be blurred as a whole
+     */
+    public long getSnapshotCacheMisses() {
+        return snapshotCacheMisses;
+    }
+
+    /**
+     * @return how many times only the changed region of a snapshot was blurred again
+     */
+    public long getIncrementalBlurs() {
+        return incrementalBlurs;
+    }
+
+    /**
+     * @return fraction of the BlurView area covered by its opaque children on the last update,
+     * where nothing is captured, blurred or drawn
+     */
+    public float getCoveredFraction() {
+        return coveredFraction;
+    }
+
+    /**
+     * @return how many update requests were merged into an already pending update of the same frame
+     */
+    public long getCoalescedUpdateRequests() {
+        return coalescedUpdateRequests;
+    }
+
+    /**
+     * @return true if the noise is composited in the same RenderEffect pass as the blur, API 31+ only.
+     * The overlay color is always drawn separately
+     */
+    public boolean isFusedEffectsActive() {
+        return fusedEffectsActive;
+    }
+
+    /**
+     * @return true if the BlurView draws a blurred node shared with other BlurViews over the same target, API 31+ only
+     */
+    public boolean isSharedNodeActive() {
+        return sharedNodeActive;
+    }
+
+    /**
+     * @return how many times a size change required new snapshot bitmaps,
+     * instead of resizing the current ones in place
+     */
+    public long getBitmapReallocations() {
+        return bitmapReallocations;
+    }
+
+    public float getSnapshotCacheHitRate() {
+        long total = snapshotCacheHits + snapshotCacheMisses;
+        return total > 0 ? (float) snapshotCacheHits / total : 0f;
+    }
+
+    /**
+     * Resets all counters to zero
+     */
+    public void reset() {
+        snapshotCacheHits = 0;
+        snapshotCacheMisses = 0;
+        incrementalBlurs = 0;
+        coveredFraction = 0f;
+        coalescedUpdateRequests = 0;
+        bitmapReallocations = 0;
+    }
+
+    void recordSnapshotCacheHit() {
+        snapshotCacheHits++;
+    }
+
+    void recordSnapshotCacheMiss() {
+        snapshotCacheMisses++;
+    }
+
+    void recordIncrementalBlur() {
+        incrementalBlurs++;
+    }
+
+    void recordBitmapReallocation() {
+        bitmapReallocations++;
+    }
+
+    void recordCoalescedUpdateRequest() {
+        coalescedUpdateRequests++;
+    }
+
+    void setFusedEffectsActive(boolean fusedEffectsActive) {
+        this.fusedEffectsActive = fusedEffectsActive;
+    }
+
+    void setSharedNodeActive(boolean sharedNodeActive) {
+        this.sharedNodeActive = sharedNodeActive;
+    }
+
+    void setCoveredFraction(float coveredFraction) {
+        this.coveredFraction = coveredFraction;
+    }
+}
@@ -2,16 +2,27 @@ package eightbitlab.com.blurview;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.graphics.RecordingCanvas;
+import android.graphics.Region;
 import android.graphics.RenderNode;
 import android.os.Build;
 import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewParent;
 import android.widget.FrameLayout;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 /**
  * A FrameLayout that records a snapshot of its children on a RenderNode.
  * This snapshot is used by the BlurView to apply blur effect.
@@ -21,6 +32,15 @@ public class BlurTarget extends FrameLayout {
     static final boolean canUseHardwareRendering = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S;
 
     RenderNode renderNode;
+    // Controllers drawing the renderNode. The children are only recorded into it while there are any,
+    // otherwise the BlurTarget draws like a plain FrameLayout
+    private final Set<Object> renderNodeConsumers = new HashSet<>();
+    // Blurred nodes shared by the BlurViews drawing this target, see SharedBlurNode
+    final List<SharedBlurNode> sharedBlurNodes = new ArrayList<>();
+
+    // Views replaced by a cheap stand-in (or skipped) while BlurViews capture their snapshot
+    private final Map<View, CaptureProxy> captureProxies = new WeakHashMap<>();
+    private final Rect proxyBounds = new Rect();
 
     {
         if (canUseHardwareRendering) {
@@ -47,7 +67,7 @@ public class BlurTarget extends FrameLayout {
 
     @Override
     protected void dispatchDraw(@NonNull Canvas canvas) {
-        if (canUseHardwareRendering && canvas.isHardwareAccelerated()) {
+        if (canUseHardwareRendering && canvas.isHardwareAccelerated() && !renderNodeConsumers.isEmpty()) {
             renderNode.setPosition(0, 0, getWidth(), getHeight());
             RecordingCanvas recordingCanvas = renderNode.beginRecording();
             super.dispatchDraw(recordingCanvas);
@@ -57,4 +77,152 @@ public class BlurTarget extends FrameLayout {
             super.dispatchDraw(canvas);
         }
     }
+
+    /**
+     * Starts recording the children into the renderNode for the given consumer
+     */
+    void addRenderNodeConsumer(@NonNull Object consumer) {
+        if (renderNodeConsumers.add(consumer) && renderNodeConsumers.size() == 1) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Stops recording the children into the renderNode once there are no consumers left.
+     * The last display list is kept, so a BlurView shown again doesn't draw an empty node until the target re-records.
+     */
+    void removeRenderNodeConsumer(@NonNull Object consumer) {
+        if (renderNodeConsumers.remove(consumer) && renderNodeConsumers.isEmpty()) {
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (renderNode != null && renderNodeConsumers.isEmpty()) {
+            renderNode.discardDisplayList();
+        }
+    }
+
+    @Override
+    protected boolean drawChild(@NonNull Canvas canvas, View child, long drawingTime) {
+        if (BlurViewCanvas.isSnapshotCanvas(canvas) && !captureProxies.isEmpty()) {
+            return drawChildForCapture(canvas, child, drawingTime);
+        }
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    /**
+     * Replaces the given View with a cheap proxy in BlurView snapshots.
+     * The View keeps drawing normally on the screen.
+     * <p>
+     * Direct children of the BlurTarget are skipped completely, so the content behind them stays in the snapshot.
+     * Deeper descendants still go through their parent's drawing, so their bounds are clipped out
+     * of the snapshot instead, and the proxy is expected to cover them.
+     * Either way the proxy is drawn at the position of the direct child in the drawing order,
+     * so the siblings above it still cover it.
+     * Transformations other than translation are not taken into account.
+     *
+     * @param view  a descendant of this BlurTarget
+     * @param proxy the proxy to draw instead of the View, or null to draw the View as usual
+     * @see CaptureProxy
+     */
+    public void setCaptureProxy(@NonNull View view, @Nullable CaptureProxy proxy) {
+        if (proxy == null) {
+            captureProxies.remove(view);
+        } else {
+            captureProxies.put(view, proxy);
+        }
+    }
+
+    /**
+     * Leaves the given View out of BlurView snapshots.
+     *
+     * @see #setCaptureProxy(View, CaptureProxy)
+     */
+    public void excludeFromCapture(@NonNull View view) {
+        setCaptureProxy(view, CaptureProxy.exclude());
+    }
+
+    /**
+     * Draws the proxies in place of the child, or of its descendants, at the child's position in the drawing order,
+     * so the siblings drawn after it still cover them.
+     */
+    private boolean drawChildForCapture(@NonNull Canvas canvas, @NonNull View child, long drawingTime) {
+        boolean more = false;
+        if (!captureProxies.containsKey(child)) {
+            // Direct children are skipped entirely, deeper descendants are clipped out of their parent's drawing
+            int saveCount = canvas.save();
+            for (View view : captureProxies.keySet()) {
+                if (isDescendantOf(view, child) && getCaptureBounds(view, proxyBounds)) {
+                    clipOut(canvas, proxyBounds);
+                }
+            }
+            more = super.drawChild(canvas, child, drawingTime);
+            canvas.restoreToCount(saveCount);
+        }
+        for (Map.Entry<View, CaptureProxy> entry : captureProxies.entrySet()) {
+            View view = entry.getKey();
+            if ((view == child || isDescendantOf(view, child)) && getCaptureBounds(view, proxyBounds)) {
+                canvas.save();
+                canvas.clipRect(proxyBounds);
+                canvas.translate(proxyBounds.left, proxyBounds.top);
+                entry.getValue().draw(canvas, view);
+                canvas.restore();
+            }
+        }
+        return more;
+    }
+
+    private static boolean isDescendantOf(@NonNull View view, @NonNull View ancestor) {
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent == ancestor) {
+                return true;
+            }
+            parent = parent.getParent();
+        }
+        return false;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void clipOut(@NonNull Canvas canvas, @NonNull Rect rect) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            canvas.clipOutRect(rect);
+        } else {
+            canvas.clipRect(rect, Region.Op.DIFFERENCE);
+        }
+    }
+
+    /**
+     * Computes the View bounds in this BlurTarget coordinates.
+     *
+     * @return false if the View is not shown or is not a descendant of this BlurTarget
+     */
+    private boolean getCaptureBounds(@NonNull View view, @NonNull Rect outBounds) {
+        if (!view.isShown() || view.getWidth() == 0 || view.getHeight() == 0) {
+            return false;
+        }
+        float left = 0;
+        float top = 0;
+        View current = view;
+        while (current != this) {
+            left += current.getLeft() + current.getTranslationX();
+            top += current.getTop() + current.getTranslationY();
+            ViewParent parent = current.getParent();
+            if (!(parent instanceof View)) {
+                return false;
+            }
+            current = (View) parent;
+            if (current != this) {
+                left -= current.getScrollX();
+                top -= current.getScrollY();
+            }
+        }
+        int roundedLeft = Math.round(left);
+        int roundedTop = Math.round(top);
+        outBounds.set(roundedLeft, roundedTop, roundedLeft + view.getWidth(), roundedTop + view.getHeight());
+        return true;
+    }
 }
@@ -0,0 +1,78 @@
+package eightbitlab.com.blurview;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Decides on which frames the blur is updated.
+ * Only applies below API 31, see {@link BlurViewFacade#setUpdatePolicy(BlurUpdatePolicy)}.
+ *
+ * @see BlurViewFacade#setUpdatePolicy(BlurUpdatePolicy)
+ */
+public final class BlurUpdatePolicy {
+
+    enum Mode {
+        EVERY_FRAME,
+        ON_CONTENT_CHANGE,
+        FIXED_RATE,
+        WHILE_ANIMATING,
+        MANUAL
+    }
+
+    private static final BlurUpdatePolicy EVERY_FRAME = new BlurUpdatePolicy(Mode.EVERY_FRAME, 0);
+    private static final BlurUpdatePolicy ON_CONTENT_CHANGE = new BlurUpdatePolicy(Mode.ON_CONTENT_CHANGE, 0);
+    private static final BlurUpdatePolicy WHILE_ANIMATING = new BlurUpdatePolicy(Mode.WHILE_ANIMATING, 0);
+    private static final BlurUpdatePolicy MANUAL = new BlurUpdatePolicy(Mode.MANUAL, 0);
+
+    final Mode mode;
+    final long intervalMs;
+
+    private BlurUpdatePolicy(@NonNull Mode mode, long intervalMs) {
+        this.mode = mode;
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Updates the blur on every frame. The default.
+     */
+    @NonNull
+    public static BlurUpdatePolicy everyFrame() {
+        return EVERY_FRAME;
+    }
+
+    /**
+     * Updates the blur only when the content under the BlurView has been invalidated or the BlurView has moved.
+     */
+    @NonNull
+    public static BlurUpdatePolicy onContentChange() {
+        return ON_CONTENT_CHANGE;
+    }
+
+    /**
+     * Updates the blur on content changes, but at most {@code hz} times per second, regardless of the display refresh rate.
+     * A change that comes too early is picked up once the interval has passed.
+     */
+    @NonNull
+    public static BlurUpdatePolicy fixedRate(float hz) {
+        if (hz <= 0) {
+            throw new IllegalArgumentException("Update rate must be positive, was " + hz);
+        }
+        return new BlurUpdatePolicy(Mode.FIXED_RATE, Math.round(1000 / hz));
+    }
+
+    /**
+     * Updates the blur only while the BlurView is moving or has a View Animation running.
+     */
+    @NonNull
+    public static BlurUpdatePolicy whileAnimating() {
+        return WHILE_ANIMATING;
+    }
+
+    /**
+     * Updates the blur only when requested, for example via {@link BlurView#forceBlurUpdate()},
+     * or when the blur parameters change.
+     */
+    @NonNull
+    public static BlurUpdatePolicy manual() {
+        return MANUAL;
+    }
+}
@@ -0,0 +1,103 @@
+package eightbitlab.com.blurview;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Applies a {@link BlurUpdatePolicy} to the stream of frames of the {@link PreDrawBlurController}.
+ * Main thread only.
+ */
+final class BlurUpdateScheduler {
+
+    static final long NO_UPDATE = -1;
+
+    @NonNull
+    private BlurUpdatePolicy policy = BlurUpdatePolicy.everyFrame();
+    // The very first frame is always blurred
+    private boolean updateRequested = true;
+    private boolean hasUpdated;
+    private long lastUpdateTime;
+    // A change skipped by the fixed rate, that is still to be picked up
+    private boolean trailingUpdatePending;
+    private boolean trailingUpdateScheduled;
+
+    void setPolicy(@NonNull BlurUpdatePolicy policy) {
+        this.policy = policy;
+        trailingUpdatePending = false;
+        trailingUpdateScheduled = false;
+        // To reflect the current state right away
+        updateRequested = true;
+    }
+
+    @NonNull
+    BlurUpdatePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Makes the next frame update the blur, regardless of the policy
+     */
+    void requestUpdate() {
+        updateRequested = true;
+    }
+
+    /**
+     * @param nowMs          current time, in milliseconds
+     * @param contentChanged whether the content under the BlurView has been invalidated, or the BlurView has moved
+     * @param animating      whether the BlurView is moving or animated
+     * @return true if the blur has to be updated on this frame
+     */
+    boolean shouldUpdate(long nowMs, boolean contentChanged, boolean animating) {
+        boolean update;
+        switch (policy.mode) {
+            case EVERY_FRAME:
+                update = true;
+                break;
+            case ON_CONTENT_CHANGE:
+                update = contentChanged;
+                break;
+            case FIXED_RATE:
+                update = shouldUpdateAtFixedRate(nowMs, contentChanged);
+                break;
+            case WHILE_ANIMATING:
+                update = animating;
+                break;
+            default:
+                update = false;
+                break;
+        }
+        if (!update && !updateRequested) {
+            return false;
+        }
+        updateRequested = false;
+        trailingUpdatePending = false;
+        trailingUpdateScheduled = false;
+        hasUpdated = true;
+        lastUpdateTime = nowMs;
+        return true;
+    }
+
+    private boolean shouldUpdateAtFixedRate(long nowMs, boolean contentChanged) {
+        if (!contentChanged && !trailingUpdatePending) {
+            return false;
+        }
+        if (!hasUpdated || nowMs - lastUpdateTime >= policy.intervalMs) {
+            return true;
+        }
+        trailingUpdatePending = true;
+        return false;
+    }
+
+    /**
+     * Nothing may trigger a new frame after a change was skipped by the fixed rate,
+     * so the caller has to schedule one. Only reported once per skipped change.
+     *
+     * @return delay in milliseconds until the next frame has to be drawn, or {@link #NO_UPDATE}
+     */
+    long scheduleTrailingUpdate(long nowMs) {
+        if (!trailingUpdatePending || trailingUpdateScheduled) {
+            return NO_UPDATE;
+        }
+        trailingUpdateScheduled = true;
+        return Math.max(0, lastUpdateTime + policy.intervalMs - nowMs);
+    }
+}
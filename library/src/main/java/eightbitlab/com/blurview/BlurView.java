@@ -8,8 +8,11 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 
 import androidx.annotation.ColorInt;
@@ -32,15 +35,33 @@ public class BlurView extends FrameLayout {
     @ColorInt
     private int overlayColor;
     private boolean blurAutoUpdate = true;
+    @NonNull
+    private BlurUpdatePolicy updatePolicy = BlurUpdatePolicy.everyFrame();
     
     // Enhanced features
     private DynamicColorExtractor colorExtractor;
     private BlurAnimator blurAnimator;
     private BlurPerformanceOptimizer performanceOptimizer;
     private boolean dynamicColorsEnabled = false;
+    // A couple of frames, so the blur is updated first and the calls on every frame of an animation
+    // end up in a single extraction once it settles
+    private static final long DYNAMIC_COLORS_DELAY_MS = 32;
+    private final Runnable dynamicColorsUpdate = this::applyDynamicColorsAuto;
     private boolean animationsEnabled = true;
     private boolean performanceOptimizationEnabled = true;
 
+    @Nullable
+    private BlurTarget blurTarget;
+    private final int[] refreshLocation = new int[2];
+    private int lastRefreshLeft;
+    private int lastRefreshTop;
+    private boolean autoRefreshEnabled;
+    // Wakes the idle refresh up, a traversal means something has been invalidated or moved
+    private final ViewTreeObserver.OnPreDrawListener refreshWakeListener = () -> {
+        BlurRefreshDriver.getInstance().wake(this);
+        return true;
+    };
+
     public BlurView(Context context) {
         super(context);
         init(null, 0);
@@ -104,15 +125,19 @@ public class BlurView extends FrameLayout {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        // Blurs right away with the new size
         blurController.updateBlurViewSize();
-        // Force immediate blur update for size changes
-        forceBlurUpdate();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         blurController.setBlurAutoUpdate(false);
+        removeCallbacks(dynamicColorsUpdate);
+        if (usingRenderNode()) {
+            ((RenderNodeBlurController) blurController).onAttachedToWindowChanged(false);
+        }
+        stopAutoRefresh();
         
         // Clean up enhanced features
         if (blurAnimator != null) {
@@ -134,7 +159,14 @@ public class BlurView extends FrameLayout {
         } else {
             blurController.setBlurAutoUpdate(this.blurAutoUpdate);
         }
+        if (usingRenderNode()) {
+            ((RenderNodeBlurController) blurController).onAttachedToWindowChanged(true);
+        }
         
+        if (autoRefreshEnabled) {
+            startAutoRefresh();
+        }
+
         // Reinitialize enhanced features if needed
         if (colorExtractor == null && dynamicColorsEnabled) {
             colorExtractor = new DynamicColorExtractor();
@@ -152,6 +184,7 @@ public class BlurView extends FrameLayout {
      */
     public BlurViewFacade setupWith(@NonNull BlurTarget target, BlurAlgorithm algorithm, float scaleFactor, boolean applyNoise) {
         blurController.destroy();
+        blurTarget = target;
         
         // Apply performance optimizations if enabled
         if (performanceOptimizer != null) {
@@ -171,6 +204,8 @@ public class BlurView extends FrameLayout {
             blurController = new PreDrawBlurController(this, target, overlayColor, algorithm, scaleFactor, applyNoise);
         }
         
+        blurController.setUpdatePolicy(updatePolicy);
+
         // Initialize animator after controller is set
         if (animationsEnabled) {
             blurAnimator = new BlurAnimator(blurController);
@@ -237,6 +272,19 @@ public class BlurView extends FrameLayout {
         return blurController.setBlurAutoUpdate(enabled);
     }
 
+    /**
+     * Sets on which frames the blur is updated below API 31.
+     * <p>
+     * Has no effect on API 31+: the blurred node draws the target's RenderNodes by reference,
+     * and the RenderThread blurs their latest content on every frame, so there's no snapshot the policy could skip.
+     *
+     * @see BlurViewFacade#setUpdatePolicy(BlurUpdatePolicy)
+     */
+    public BlurViewFacade setUpdatePolicy(@NonNull BlurUpdatePolicy policy) {
+        this.updatePolicy = policy;
+        return blurController.setUpdatePolicy(policy);
+    }
+
     /**
      * @see BlurViewFacade#setBlurEnabled(boolean)
      */
@@ -298,6 +346,27 @@ public class BlurView extends FrameLayout {
         }
     }
 
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // Covers the parents' visibility as well
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).onVisibilityChanged();
+        } else if (blurController instanceof RenderNodeBlurController) {
+            ((RenderNodeBlurController) blurController).onVisibilityChanged();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).onVisibilityChanged();
+        } else if (blurController instanceof RenderNodeBlurController) {
+            ((RenderNodeBlurController) blurController).onVisibilityChanged();
+        }
+    }
+
     private boolean usingRenderNode() {
         return blurController instanceof RenderNodeBlurController;
     }
@@ -446,6 +515,37 @@ public class BlurView extends FrameLayout {
         return performanceOptimizer != null ? performanceOptimizer.getPerformanceStats() : null;
     }
     
+    /**
+     * Gets counters describing the blur work done by this BlurView,
+     * such as how often an unchanged snapshot allowed to skip the blur.
+     *
+     * @return blur statistics of the current controller
+     */
+    @NonNull
+    public BlurStats getBlurStats() {
+        return blurController.getStats();
+    }
+
+    /**
+     * Gets the memory this BlurView holds for blurring: snapshot bitmaps and cached blur results.
+     * All BlurViews share a single memory budget, exceeding it or a system memory trim
+     * drops the caches first and then lowers the snapshot resolution.
+     *
+     * @return bytes held by this BlurView
+     */
+    public long getBlurMemoryBytes() {
+        long bytes = 0;
+        if (blurController instanceof PreDrawBlurController) {
+            bytes += ((PreDrawBlurController) blurController).getRetainedBytes();
+        } else if (blurController instanceof RenderNodeBlurController) {
+            bytes += ((RenderNodeBlurController) blurController).getRetainedBytes();
+        }
+        if (performanceOptimizer != null) {
+            bytes += performanceOptimizer.getRetainedBytes();
+        }
+        return bytes;
+    }
+
     /**
      * Checks if dynamic colors are enabled.
      */
@@ -468,27 +568,145 @@ public class BlurView extends FrameLayout {
     }
     
     /**
-     * Forces an immediate blur update. This can be used to refresh the blur
+     * Forces a blur update on the next frame. This can be used to refresh the blur
      * when the underlying content changes (e.g., during ripple animations).
+     * Multiple calls within a frame result in a single update.
      * 
      * @return this BlurView for method chaining
+     * @see BlurStats#getCoalescedUpdateRequests()
      */
     public BlurView forceBlurUpdate() {
         if (blurController != null && isViewAttachedToWindow()) {
-            // Invalidate to trigger a redraw
-            invalidate();
-            // Force immediate update for PreDrawBlurController
             if (blurController instanceof PreDrawBlurController) {
-                ((PreDrawBlurController) blurController).updateBlur();
+                ((PreDrawBlurController) blurController).requestUpdate();
+            } else {
+                // Invalidate to trigger a redraw
+                invalidate();
             }
             // Apply dynamic colors if enabled
             if (dynamicColorsEnabled && colorExtractor != null) {
-                postDelayed(this::applyDynamicColorsAuto, 10); // Small delay to let blur update first
+                removeCallbacks(dynamicColorsUpdate);
+                postDelayed(dynamicColorsUpdate, DYNAMIC_COLORS_DELAY_MS);
             }
         }
         return this;
     }
     
+    /**
+     * Notifies that only the given area of the {@link BlurTarget} content has changed,
+     * for example a progress spinner or a ripple under this BlurView.
+     * Only that area, expanded by the blur radius, is captured and blurred again
+     * instead of the whole snapshot, as long as the BlurView hasn't moved.
+     * <p>
+     * No-op on API 31+, where the hardware pipeline always composites the latest content.
+     *
+     * @param dirty changed area in {@link BlurTarget} coordinates
+     * @return this BlurView for method chaining
+     */
+    public BlurView notifyContentChanged(@NonNull Rect dirty) {
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).notifyContentChanged(dirty);
+            invalidate();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the View whose scrolling moves the content under this BlurView, for example a ScrollView.
+     * While this BlurView stays in place, the previous blur result is shifted by the scrolled distance,
+     * and only the newly exposed strip is captured and blurred.
+     * <p>
+     * No-op on API 31+, where the hardware pipeline always composites the latest content.
+     *
+     * @param scrollSource scrolling View that covers the whole area under this BlurView, or null to stop tracking
+     * @return this BlurView for method chaining
+     * @see #notifyContentScrolled(int, int)
+     */
+    public BlurView setScrollSource(@Nullable View scrollSource) {
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).setScrollSource(scrollSource);
+        }
+        return this;
+    }
+
+    /**
+     * Reports a scroll of the content under this BlurView, for Views that don't scroll via
+     * {@link View#getScrollY()}, like RecyclerView. Call it from RecyclerView.OnScrollListener#onScrolled.
+     * <p>
+     * No-op on API 31+.
+     *
+     * @see #setScrollSource(View)
+     */
+    public BlurView notifyContentScrolled(int dx, int dy) {
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).notifyContentScrolled(dx, dy);
+        }
+        return this;
+    }
+
+    /**
+     * Enables/disables the static background mode, for a BlurView moving over content that doesn't change,
+     * like a sliding panel, a draggable sheet or a dialog.
+     * The whole {@link BlurTarget} is blurred once and shared with other BlurViews in this mode,
+     * and moving the BlurView only draws a different part of it, without any blur work.
+     * <p>
+     * No-op on API 31+, where the hardware pipeline only recomposites the blurred layer on movement.
+     *
+     * @return this BlurView for method chaining
+     * @see #invalidateStaticBackground()
+     */
+    public BlurView setStaticBackgroundEnabled(boolean enabled) {
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).setStaticBackgroundEnabled(enabled);
+        }
+        return this;
+    }
+
+    /**
+     * Blurs the static background again on the next frame, call it when the {@link BlurTarget} content changes.
+     *
+     * @return this BlurView for method chaining
+     * @see #setStaticBackgroundEnabled(boolean)
+     */
+    public BlurView invalidateStaticBackground() {
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).invalidateStaticBackground();
+        }
+        return this;
+    }
+
+    /**
+     * Enables/disables capturing the snapshot into a {@link android.graphics.Picture},
+     * which is then rasterized and blurred on a worker thread instead of the main thread.
+     * The blur shows the content one frame late. Disabled by default.
+     * <p>
+     * No-op on API 31+, where the blur is already done by the RenderThread.
+     *
+     * @return this BlurView for method chaining
+     */
+    public BlurView setPictureCaptureEnabled(boolean enabled) {
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).setPictureCaptureEnabled(enabled);
+        }
+        return this;
+    }
+
+    /**
+     * Enables/disables blurring on a worker thread, while the snapshot is still captured on the main thread.
+     * The blur shows the content one frame late, and only the latest snapshot waits for a busy worker.
+     * Disabled by default.
+     * <p>
+     * No-op on API 31+, where the blur is already done by the RenderThread.
+     *
+     * @return this BlurView for method chaining
+     */
+    public BlurView setAsyncBlurEnabled(boolean enabled) {
+        if (blurController instanceof PreDrawBlurController) {
+            ((PreDrawBlurController) blurController).setAsyncBlurEnabled(enabled);
+        }
+        return this;
+    }
+
     /**
      * Forces an immediate blur refresh with a short delay. Useful for cases
      * where the underlying content is still changing (e.g., during animations).
@@ -505,28 +723,61 @@ public class BlurView extends FrameLayout {
     
     /**
      * Sets up automatic blur refresh for ripple effects and animations.
-     * This will periodically refresh the blur during active animations.
+     * The blur is refreshed once per frame while the content under this BlurView is invalidated,
+     * this BlurView moves, or it's animated. The refresh idles after a short quiet period
+     * and resumes by itself on the next activity, until it's disabled. Repeated calls don't stack.
      * 
      * @param enabled true to enable automatic refresh during animations
      * @return this BlurView for method chaining
      */
     public BlurView setAutoRefreshDuringAnimations(boolean enabled) {
-        if (enabled) {
-            // Refresh every 16ms (60fps) while animations might be running
-            Runnable refreshRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    if (isViewAttachedToWindow() && getVisibility() == VISIBLE) {
-                        forceBlurUpdate();
-                        // Continue refreshing if animations are likely still running
-                        postDelayed(this, 16);
-                    }
-                }
-            };
-            post(refreshRunnable);
+        boolean wasEnabled = autoRefreshEnabled;
+        autoRefreshEnabled = enabled;
+        // Started once attached otherwise
+        if (!isViewAttachedToWindow()) {
+            return this;
+        }
+        if (enabled && wasEnabled) {
+            // Refreshes right away, even if idle
+            BlurRefreshDriver.getInstance().register(this);
+        } else if (enabled) {
+            startAutoRefresh();
+        } else if (wasEnabled) {
+            stopAutoRefresh();
         }
         return this;
     }
+
+    private void startAutoRefresh() {
+        BlurRefreshDriver.getInstance().register(this);
+        getViewTreeObserver().addOnPreDrawListener(refreshWakeListener);
+        if (blurTarget != null && blurTarget.getViewTreeObserver() != getViewTreeObserver()) {
+            // The target is in another window, for example the BlurView is in a Dialog
+            blurTarget.getViewTreeObserver().addOnPreDrawListener(refreshWakeListener);
+        }
+    }
+
+    private void stopAutoRefresh() {
+        BlurRefreshDriver.getInstance().unregister(this);
+        getViewTreeObserver().removeOnPreDrawListener(refreshWakeListener);
+        if (blurTarget != null) {
+            blurTarget.getViewTreeObserver().removeOnPreDrawListener(refreshWakeListener);
+        }
+    }
+
+    /**
+     * @return true if anything that may change the blur is going on since the last call
+     */
+    boolean detectRefreshActivity() {
+        getLocationOnScreen(refreshLocation);
+        boolean moved = refreshLocation[0] != lastRefreshLeft || refreshLocation[1] != lastRefreshTop;
+        lastRefreshLeft = refreshLocation[0];
+        lastRefreshTop = refreshLocation[1];
+        return moved
+                || getAnimation() != null
+                || (blurAnimator != null && blurAnimator.isAnimating())
+                || (blurTarget != null && blurTarget.isDirty());
+    }
     
     /**
      * Compatibility method for checking if view is attached to window.
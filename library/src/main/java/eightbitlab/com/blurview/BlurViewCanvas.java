@@ -4,11 +4,28 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 // Serves purely as a marker of a Canvas used in BlurView
 // to skip drawing itself and other BlurViews on the View hierarchy snapshot
 public class BlurViewCanvas extends Canvas {
+    // Picture recording Canvas can't be subclassed, so it's marked while the snapshot is being recorded.
+    // Main thread only.
+    @Nullable
+    private static Canvas recordingCanvas;
+
     public BlurViewCanvas(@NonNull Bitmap bitmap) {
         super(bitmap);
     }
+
+    /**
+     * @return true if the canvas is capturing a BlurView snapshot
+     */
+    public static boolean isSnapshotCanvas(@NonNull Canvas canvas) {
+        return canvas instanceof BlurViewCanvas || canvas == recordingCanvas;
+    }
+
+    static void setRecordingCanvas(@Nullable Canvas canvas) {
+        recordingCanvas = canvas;
+    }
 }
@@ -3,6 +3,7 @@ package eightbitlab.com.blurview;
 import android.graphics.drawable.Drawable;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 public interface BlurViewFacade {
@@ -23,6 +24,16 @@ public interface BlurViewFacade {
      */
     BlurViewFacade setBlurAutoUpdate(boolean enabled);
 
+    /**
+     * Sets on which frames the blur is updated, while auto update is enabled.
+     * {@link BlurUpdatePolicy#everyFrame()} by default.
+     * <p>
+     * Has no effect on API 31+, where the blur is always composited from the latest content by the RenderThread.
+     *
+     * @return {@link BlurViewFacade}
+     */
+    BlurViewFacade setUpdatePolicy(@NonNull BlurUpdatePolicy policy);
+
     /**
      * @param frameClearDrawable sets the drawable to draw before view hierarchy.
      *                           Can be used to draw Activity's window background if your root layout doesn't provide any background
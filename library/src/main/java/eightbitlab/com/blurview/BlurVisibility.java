@@ -0,0 +1,46 @@
+package eightbitlab.com.blurview;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewParent;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Tells whether blurring for a BlurView would be visible at all
+ */
+final class BlurVisibility {
+
+    private BlurVisibility() {
+    }
+
+    /**
+     * @return false if the View or any of its parents is not VISIBLE, or its window is hidden.
+     * The View gets notified when this changes via {@link View#onVisibilityChanged} and {@link View#onWindowVisibilityChanged}.
+     */
+    static boolean isShown(@NonNull View view) {
+        return view.isShown() && view.getWindowVisibility() == View.VISIBLE;
+    }
+
+    /**
+     * @param outVisibleRect reused to avoid allocations
+     * @return false if the View is fully offscreen, clipped out, or fully transparent together with its parents.
+     * There's no notification when this changes, it has to be checked on every frame.
+     */
+    static boolean isRendered(@NonNull View view, @NonNull Rect outVisibleRect) {
+        if (!view.getGlobalVisibleRect(outVisibleRect)) {
+            return false;
+        }
+        if (view.getAlpha() <= 0f) {
+            return false;
+        }
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (((View) parent).getAlpha() <= 0f) {
+                return false;
+            }
+            parent = parent.getParent();
+        }
+        return true;
+    }
+}
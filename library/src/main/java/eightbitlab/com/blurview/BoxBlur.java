@@ -0,0 +1,136 @@
+package eightbitlab.com.blurview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Blur on the CPU in plain Java, approximating a gaussian blur with three box blur passes.
+ * Doesn't need RenderScript or any other context, and doesn't allocate anything once the buffers fit the bitmap.
+ * <p>
+ * Meant for small, downscaled bitmaps, for example the software rendering fallback of {@link RenderNodeBlurController}.
+ */
+public class BoxBlur implements BlurAlgorithm {
+    private static final int PASSES = 3;
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private int[] pixels = new int[0];
+    private int[] buffer = new int[0];
+
+    /**
+     * @param bitmap     bitmap to blur
+     * @param blurRadius blur radius, same scale as in {@link RenderScriptBlur}
+     * @return blurred bitmap
+     */
+    @Override
+    public Bitmap blur(@NonNull Bitmap bitmap, float blurRadius) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int size = width * height;
+        if (pixels.length < size) {
+            pixels = new int[size];
+            buffer = new int[size];
+        }
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        blur(pixels, buffer, width, height, boxRadius(blurRadius));
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+        return bitmap;
+    }
+
+    /**
+     * @return radius of a single box pass, so that three passes have the same spread as the gaussian blur
+     * RenderScript uses for the given radius
+     */
+    static int boxRadius(float blurRadius) {
+        // ScriptIntrinsicBlur sigma
+        float sigma = 0.4f * blurRadius + 0.6f;
+        // Three passes of a box with radius r have a variance of r * (r + 1)
+        return Math.max(0, Math.round((float) Math.sqrt(sigma * sigma + 0.25f) - 0.5f));
+    }
+
+    /**
+     * Blurs the ARGB pixels in place
+     *
+     * @param buffer at least the size of the pixels
+     */
+    static void blur(@NonNull int[] pixels, @NonNull int[] buffer, int width, int height, int radius) {
+        if (radius <= 0 || width == 0 || height == 0) {
+            return;
+        }
+        for (int i = 0; i < PASSES; i++) {
+            // Rows
+            blurLines(pixels, buffer, height, width, width, 1, radius);
+            // Columns
+            blurLines(buffer, pixels, width, height, 1, width, radius);
+        }
+    }
+
+    /**
+     * Running sum over each line, with the edge pixels repeated beyond the line bounds
+     *
+     * @param lineStride distance between the first pixels of two lines
+     * @param step       distance between two pixels of a line
+     */
+    private static void blurLines(int[] src, int[] dst, int lines, int length, int lineStride, int step, int radius) {
+        int window = 2 * radius + 1;
+        int half = window / 2;
+        int last = length - 1;
+        for (int line = 0; line < lines; line++) {
+            int start = line * lineStride;
+            int a = 0;
+            int r = 0;
+            int g = 0;
+            int b = 0;
+            for (int i = -radius; i <= radius; i++) {
+                int color = src[start + Math.min(Math.max(i, 0), last) * step];
+                a += color >>> 24;
+                r += (color >> 16) & 0xFF;
+                g += (color >> 8) & 0xFF;
+                b += color & 0xFF;
+            }
+            for (int i = 0; i < length; i++) {
+                dst[start + i * step] = ((a + half) / window) << 24
+                        | ((r + half) / window) << 16
+                        | ((g + half) / window) << 8
+                        | ((b + half) / window);
+                int out = src[start + Math.max(i - radius, 0) * step];
+                int in = src[start + Math.min(i + radius + 1, last) * step];
+                a += (in >>> 24) - (out >>> 24);
+                r += ((in >> 16) & 0xFF) - ((out >> 16) & 0xFF);
+                g += ((in >> 8) & 0xFF) - ((out >> 8) & 0xFF);
+                b += (in & 0xFF) - (out & 0xFF);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        trimMemory();
+    }
+
+    /**
+     * Releases the pixel buffers, they're allocated again on the next {@link #blur(Bitmap, float)}
+     */
+    public void trimMemory() {
+        pixels = new int[0];
+        buffer = new int[0];
+    }
+
+    @Override
+    public boolean canModifyBitmap() {
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public Bitmap.Config getSupportedBitmapConfig() {
+        return Bitmap.Config.ARGB_8888;
+    }
+
+    @Override
+    public void render(@NonNull Canvas canvas, @NonNull Bitmap bitmap) {
+        canvas.drawBitmap(bitmap, 0f, 0f, paint);
+    }
+}
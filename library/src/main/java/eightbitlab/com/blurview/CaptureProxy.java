@@ -0,0 +1,224 @@
+package eightbitlab.com.blurview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.View;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A cheap stand-in drawn instead of a View while the BlurView snapshot is captured.
+ * <p>
+ * Long text, vector icons or nested lists are expensive to draw, but turn into smudges once blurred.
+ * Replacing them with a solid color or a low resolution thumbnail makes no visible difference
+ * after blurring, while making the snapshot noticeably cheaper.
+ * <p>
+ * Only honored when the snapshot is drawn on a {@link BlurViewCanvas},
+ * i.e. by {@link PreDrawBlurController}. The hardware pipeline on API 31+ reuses
+ * the already recorded {@link BlurTarget} content and doesn't draw the Views again.
+ *
+ * @see BlurTarget#setCaptureProxy(View, CaptureProxy)
+ */
+public abstract class CaptureProxy {
+
+    /**
+     * Draws the proxy. The canvas is translated to the View's top left corner
+     * and clipped to the View's bounds.
+     */
+    public abstract void draw(@NonNull Canvas canvas, @NonNull View view);
+
+    /**
+     * Drops any content cached by this proxy, so it's rebuilt on the next capture.
+     * Call it when the proxied View's content changes significantly.
+     */
+    public void invalidate() {
+    }
+
+    /**
+     * @return a proxy that draws nothing, so the View is left out of the snapshot completely
+     */
+    @NonNull
+    public static CaptureProxy exclude() {
+        return ExcludeProxy.INSTANCE;
+    }
+
+    /**
+     * @return a proxy that fills the View's bounds with the given color
+     */
+    @NonNull
+    public static CaptureProxy solidColor(@ColorInt int color) {
+        return new SolidColorProxy(color);
+    }
+
+    /**
+     * @return a proxy that fills the View's bounds with the average color of its content.
+     * The color is computed once and cached until {@link #invalidate()} or a View size change.
+     */
+    @NonNull
+    public static CaptureProxy averageColor() {
+        return new AverageColorProxy();
+    }
+
+    /**
+     * @param scaleFactor how much the View is downscaled for the thumbnail
+     * @return a proxy that draws a cached low resolution thumbnail of the View.
+     * The thumbnail is rendered once and cached until {@link #invalidate()} or a View size change.
+     */
+    @NonNull
+    public static CaptureProxy thumbnail(float scaleFactor) {
+        return new ThumbnailProxy(scaleFactor);
+    }
+
+    /**
+     * Renders the View into a downscaled bitmap, reusing the given one if the size matches.
+     */
+    @Nullable
+    static Bitmap renderThumbnail(@NonNull View view, float scaleFactor, @Nullable Bitmap reuse) {
+        if (view.getWidth() == 0 || view.getHeight() == 0) {
+            return null;
+        }
+        int width = Math.max(1, (int) Math.ceil(view.getWidth() / scaleFactor));
+        int height = Math.max(1, (int) Math.ceil(view.getHeight() / scaleFactor));
+        Bitmap thumbnail = reuse;
+        if (thumbnail == null || thumbnail.getWidth() != width || thumbnail.getHeight() != height) {
+            thumbnail = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            thumbnail.eraseColor(Color.TRANSPARENT);
+        }
+        // BlurViewCanvas, so that nested BlurViews skip themselves
+        BlurViewCanvas canvas = new BlurViewCanvas(thumbnail);
+        canvas.scale((float) width / view.getWidth(), (float) height / view.getHeight());
+        // Mirrors what the parent does before drawing a scrolled View
+        canvas.translate(-view.getScrollX(), -view.getScrollY());
+        try {
+            view.draw(canvas);
+        } catch (Exception e) {
+            // Same as the snapshot itself, can potentially fail on rendering Hardware Bitmaps
+            return null;
+        }
+        return thumbnail;
+    }
+
+    private static final class ExcludeProxy extends CaptureProxy {
+        static final ExcludeProxy INSTANCE = new ExcludeProxy();
+
+        @Override
+        public void draw(@NonNull Canvas canvas, @NonNull View view) {
+        }
+    }
+
+    private static class SolidColorProxy extends CaptureProxy {
+        final Paint paint = new Paint();
+
+        SolidColorProxy(@ColorInt int color) {
+            paint.setColor(color);
+        }
+
+        @Override
+        public void draw(@NonNull Canvas canvas, @NonNull View view) {
+            canvas.drawRect(0, 0, view.getWidth(), view.getHeight(), paint);
+        }
+    }
+
+    private static final class AverageColorProxy extends SolidColorProxy {
+        // The average doesn't need much precision
+        private static final float SCALE_FACTOR = 16f;
+
+        private int lastWidth = -1;
+        private int lastHeight = -1;
+
+        AverageColorProxy() {
+            super(Color.TRANSPARENT);
+        }
+
+        @Override
+        public void draw(@NonNull Canvas canvas, @NonNull View view) {
+            if (view.getWidth() != lastWidth || view.getHeight() != lastHeight) {
+                lastWidth = view.getWidth();
+                lastHeight = view.getHeight();
+                paint.setColor(computeAverageColor(view));
+            }
+            super.draw(canvas, view);
+        }
+
+        @Override
+        public void invalidate() {
+            lastWidth = -1;
+            lastHeight = -1;
+        }
+
+        @ColorInt
+        private static int computeAverageColor(@NonNull View view) {
+            Bitmap thumbnail = renderThumbnail(view, SCALE_FACTOR, null);
+            if (thumbnail == null) {
+                return Color.TRANSPARENT;
+            }
+            int width = thumbnail.getWidth();
+            int height = thumbnail.getHeight();
+            int[] pixels = new int[width * height];
+            thumbnail.getPixels(pixels, 0, width, 0, 0, width, height);
+            thumbnail.recycle();
+
+            long alpha = 0, red = 0, green = 0, blue = 0;
+            for (int pixel : pixels) {
+                int a = Color.alpha(pixel);
+                alpha += a;
+                // Premultiplied, so that transparent pixels don't darken the result
+                red += Color.red(pixel) * a;
+                green += Color.green(pixel) * a;
+                blue += Color.blue(pixel) * a;
+            }
+            if (alpha == 0) {
+                return Color.TRANSPARENT;
+            }
+            return Color.argb(
+                    (int) (alpha / pixels.length),
+                    (int) (red / alpha),
+                    (int) (green / alpha),
+                    (int) (blue / alpha)
+            );
+        }
+    }
+
+    private static final class ThumbnailProxy extends CaptureProxy {
+        private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        private final float scaleFactor;
+        @Nullable
+        private Bitmap thumbnail;
+        private boolean valid;
+
+        ThumbnailProxy(float scaleFactor) {
+            this.scaleFactor = scaleFactor;
+        }
+
+        @Override
+        public void draw(@NonNull Canvas canvas, @NonNull View view) {
+            if (!valid || !matchesSize(view)) {
+                thumbnail = renderThumbnail(view, scaleFactor, thumbnail);
+                valid = thumbnail != null;
+            }
+            if (thumbnail == null) {
+                return;
+            }
+            canvas.save();
+            canvas.scale((float) view.getWidth() / thumbnail.getWidth(), (float) view.getHeight() / thumbnail.getHeight());
+            canvas.drawBitmap(thumbnail, 0f, 0f, paint);
+            canvas.restore();
+        }
+
+        private boolean matchesSize(@NonNull View view) {
+            return thumbnail != null
+                    && thumbnail.getWidth() == Math.max(1, (int) Math.ceil(view.getWidth() / scaleFactor))
+                    && thumbnail.getHeight() == Math.max(1, (int) Math.ceil(view.getHeight() / scaleFactor));
+        }
+
+        @Override
+        public void invalidate() {
+            valid = false;
+        }
+    }
+}
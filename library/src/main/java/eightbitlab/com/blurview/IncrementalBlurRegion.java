@@ -0,0 +1,54 @@
+package eightbitlab.com.blurview;
+
+/**
+ * Bounds around a changed region of the snapshot that have to be blurred again.
+ * Pixels up to the blur radius away from the change are affected, and they in turn read
+ * pixels up to twice the blur radius away. Both are clamped to the snapshot.
+ * <p>
+ * Reused from frame to frame, so computing it doesn't allocate.
+ */
+final class IncrementalBlurRegion {
+
+    // Above this fraction of the snapshot, blurring the changed region alone isn't cheaper than a full blur
+    static final float MAX_INCREMENTAL_AREA = 0.5f;
+
+    // Pixels whose blurred value changes, spliced into the blurred bitmap
+    int outputLeft;
+    int outputTop;
+    int outputRight;
+    int outputBottom;
+    // Pixels the blur of the output reads, captured and blurred
+    int inputLeft;
+    int inputTop;
+    int inputRight;
+    int inputBottom;
+
+    /**
+     * @param left   changed region in snapshot pixels, within the snapshot
+     * @param top    changed region in snapshot pixels, within the snapshot
+     * @param right  changed region in snapshot pixels, within the snapshot
+     * @param bottom changed region in snapshot pixels, within the snapshot
+     * @param radius blur kernel radius in snapshot pixels
+     * @param width  snapshot width
+     * @param height snapshot height
+     */
+    void expand(int left, int top, int right, int bottom, int radius, int width, int height) {
+        outputLeft = Math.max(0, left - radius);
+        outputTop = Math.max(0, top - radius);
+        outputRight = Math.min(width, right + radius);
+        outputBottom = Math.min(height, bottom + radius);
+        inputLeft = Math.max(0, left - 2 * radius);
+        inputTop = Math.max(0, top - 2 * radius);
+        inputRight = Math.min(width, right + 2 * radius);
+        inputBottom = Math.min(height, bottom + 2 * radius);
+    }
+
+    /**
+     * @return true if blurring the input bounds of the changed region is cheaper than blurring the whole snapshot
+     */
+    static boolean isWorthBlurring(int changedWidth, int changedHeight, int radius, int width, int height) {
+        long inputWidth = Math.min(changedWidth + 4L * radius, width);
+        long inputHeight = Math.min(changedHeight + 4L * radius, height);
+        return inputWidth * inputHeight < (long) width * height * MAX_INCREMENTAL_AREA;
+    }
+}
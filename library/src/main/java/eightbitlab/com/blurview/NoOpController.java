@@ -3,10 +3,13 @@ package eightbitlab.com.blurview;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 // Used in edit mode and in case if no BlurController was set
 public class NoOpController implements BlurController {
+    private final BlurStats stats = new BlurStats();
+
     @Override
     public boolean draw(Canvas canvas) {
         return true;
@@ -20,6 +23,12 @@ public class NoOpController implements BlurController {
     public void destroy() {
     }
 
+    @NonNull
+    @Override
+    public BlurStats getStats() {
+        return stats;
+    }
+
     @Override
     public BlurViewFacade setBlurRadius(float radius) {
         return this;
@@ -45,6 +54,11 @@ public class NoOpController implements BlurController {
         return this;
     }
 
+    @Override
+    public BlurViewFacade setUpdatePolicy(@NonNull BlurUpdatePolicy policy) {
+        return this;
+    }
+
     @Override
     public float getBlurRadius() {
         return BlurController.DEFAULT_BLUR_RADIUS;
@@ -20,6 +20,15 @@ class Noise {
         canvas.drawRect(0, 0, width, height, noisePaint);
     }
 
+    /**
+     * @return the tiled noise shader, meant to be drawn with {@link PorterDuff.Mode#SRC_ATOP}
+     */
+    @NonNull
+    static Shader getShader(Context context) {
+        initPaint(context);
+        return noisePaint.getShader();
+    }
+
     private static void initPaint(Context context) {
         if (noisePaint == null) {
             Bitmap alphaBitmap = getNoiseBitmap(context);
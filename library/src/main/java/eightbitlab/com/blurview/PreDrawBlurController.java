@@ -3,7 +3,14 @@ package eightbitlab.com.blurview;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,6 +19,8 @@ import android.view.ViewTreeObserver;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
 
 /**
  * Blur Controller that handles all blur logic for the attached View.
@@ -23,19 +32,83 @@ import androidx.annotation.Nullable;
  * It uses {@link ViewTreeObserver.OnPreDrawListener} to detect when
  * blur should be updated.
  * <p>
+ * The snapshot is captured into a separate bitmap from the displayed blurred one,
+ * so when the new snapshot turns out to be identical to the previous one, blurring is skipped.
  */
 public final class PreDrawBlurController implements BlurController {
 
     @ColorInt
     public static final int TRANSPARENT = 0;
 
+    // Lowest resolution the memory governor can downgrade the snapshot to, relative to the scaleFactor
+    private static final float MAX_MEMORY_SCALE = 4f;
+    // How often the resolution lowered by the memory governor is tried to be restored
+    private static final long RESOLUTION_RESTORE_DELAY_MS = 2000;
+    // Grid of pixels sampled per axis for the placeholder color shown while hibernated
+    private static final int AVERAGE_COLOR_SAMPLES = 16;
+
     private float blurRadius = DEFAULT_BLUR_RADIUS;
 
     private final BlurAlgorithm blurAlgorithm;
     private final float scaleFactor;
+    // Extra downscaling applied by the memory governor
+    private float memoryScale = 1f;
+    // Set while the governor lowers the resolution, so init doesn't step it back up
+    private boolean reducingResolution;
+    private final Runnable resolutionRestore = this::restoreResolution;
+    // Set while rebuilding within an update pass, which blurs right after init
+    private boolean rehydrating;
+    // Bitmaps and the algorithm resources are released while the UI is hidden, and rebuilt on the next frame
+    private boolean hibernated;
+    // Hibernation was requested while a worker job was using the bitmaps, it happens once the job is done
+    private boolean hibernatePending;
+    // Average color of the last blur, drawn until the first blur after hibernation is ready
+    @ColorInt
+    private int placeholderColor = Color.TRANSPARENT;
+    private boolean awaitingFirstBlur;
     private final boolean applyNoise;
     private BlurViewCanvas internalCanvas;
+    // The snapshot is captured here and blurred in place, then swapped with the blurredBitmap
     private Bitmap internalBitmap;
+    // The blurred result that's currently drawn
+    private Bitmap blurredBitmap;
+    private final BlurStats stats = new BlurStats();
+
+    private boolean changeDetectionEnabled = true;
+    // Tile signatures of the last snapshot for each phase of the hashed rows, see SnapshotSignature
+    private long[][] tileSignatures;
+    private long[] currentSignatures;
+    private int signaturePhase;
+    // Phases hashed in a row without finding a change. Until every phase has been, a change may still be hidden
+    private int unchangedPhases;
+    // A single row of the snapshot, read from the bitmap one at a time
+    private int[] rowPixels;
+    private boolean hasSignatures;
+    // The capture has been shifted by a scroll, the signatures don't match it yet
+    private boolean signaturesShifted;
+
+    // Incremental blur of the changed region
+    private final Paint copyPaint = new Paint();
+    private final Rect pendingDirtyArea = new Rect();
+    private final Rect changedRegion = new Rect();
+    private final Rect inputRegion = new Rect();
+    private final Rect outputRegion = new Rect();
+    private final IncrementalBlurRegion incrementalRegion = new IncrementalBlurRegion();
+    private final Rect tileBounds = new Rect();
+    private final Rect visibleRegion = new Rect();
+    private final Rect snapshotBounds = new Rect();
+    private final BlurOcclusion occlusion = new BlurOcclusion();
+    // Only the visible part of the BlurView was captured last time
+    private boolean capturedPartially;
+    @Nullable
+    private Canvas blurredCanvas;
+    @Nullable
+    private Bitmap tileBitmap;
+    @Nullable
+    private Canvas tileCanvas;
+    // Draws the scrolled content onto the spare bitmap
+    private Canvas shiftCanvas;
+    private final ScrollShift scrollShift = new ScrollShift();
 
     @SuppressWarnings("WeakerAccess")
     final View blurView;
@@ -43,18 +116,93 @@ public final class PreDrawBlurController implements BlurController {
     private final ViewGroup rootView;
     private final int[] rootLocation = new int[2];
     private final int[] blurViewLocation = new int[2];
+    // BlurView position relative to the rootView, for the current and the last fully captured snapshot
+    private int snapshotLeft;
+    private int snapshotTop;
+    private int capturedLeft;
+    private int capturedTop;
+
+    // Scroll of the content under the BlurView, in BlurView pixels, not yet applied to the blurredBitmap
+    private float pendingScrollX;
+    private float pendingScrollY;
+    @Nullable
+    private View scrollSource;
+    private int lastScrollX;
+    private int lastScrollY;
+    private final int[] scrollSourceLocation = new int[2];
+
+    @Nullable
+    private StaticBackgroundBlur staticBackground;
+
+    // Picture capture, rasterized and blurred on the BlurExecutor
+    private boolean pictureCaptureEnabled;
+    @Nullable
+    private Picture picture;
+    @Nullable
+    private Bitmap workerBitmap;
+    @Nullable
+    private Canvas workerCanvas;
+    // The blurAlgorithm is used by the worker in the meantime
+    private boolean workerJobInFlight;
+    private boolean updateRequestedDuringJob;
+    private boolean algorithmDestroyPending;
+    // Results blurred for a different bitmap size are dropped
+    private int bitmapGeneration;
+
+    // Async blur ring: blurredBitmap is displayed, internalBitmap is captured into,
+    // and the third one is blurred by the worker, or spare while the worker is idle
+    private boolean asyncBlurEnabled;
+    @Nullable
+    private Bitmap spareBitmap;
+    // The internalBitmap holds a snapshot waiting for the worker
+    private boolean hasPendingSnapshot;
 
     private final ViewTreeObserver.OnPreDrawListener drawListener = new ViewTreeObserver.OnPreDrawListener() {
         @Override
         public boolean onPreDraw() {
-            // Not invalidating a View here, just updating the Bitmap.
-            // This relies on the HW accelerated bitmap drawing behavior in Android
-            // If the bitmap was drawn on HW accelerated canvas, it holds a reference to it and on next
-            // drawing pass the updated content of the bitmap will be rendered on the screen
-            updateBlur();
+            // Served by this frame, or by the catch-up update of a hidden BlurView
+            updateRequested = false;
+            if (!BlurVisibility.isShown(blurView)) {
+                // Resumed via onVisibilityChanged
+                suspend();
+                return true;
+            }
+            if (!BlurVisibility.isRendered(blurView, visibleRect)) {
+                // Offscreen or transparent, catches up once it's rendered again
+                updateScheduler.requestUpdate();
+                return true;
+            }
+            // The View is only invalidated when the blurred bitmap is swapped,
+            // which happens only if the snapshot has actually changed.
+            if (shouldUpdateOnThisFrame()) {
+                updateBlur();
+            }
+            return true;
+        }
+    };
+
+    // Serves requestUpdate() when the auto update is off
+    private final ViewTreeObserver.OnPreDrawListener requestedUpdateListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            removeRequestedUpdateListener();
+            if (updateRequested) {
+                updateRequested = false;
+                updateBlur();
+            }
             return true;
         }
     };
+    private boolean updateRequested;
+    private boolean drawListenersAttached;
+
+    private final BlurUpdateScheduler updateScheduler = new BlurUpdateScheduler();
+    private final Rect visibleRect = new Rect();
+    // Auto update is on, but the listener is detached while the BlurView is hidden
+    private boolean suspended;
+    // BlurView position on the previous frame, to tell if it's moving
+    private int lastFrameLeft;
+    private int lastFrameTop;
 
     private boolean blurEnabled = true;
     private boolean initialized;
@@ -83,6 +231,8 @@ public final class PreDrawBlurController implements BlurController {
         this.blurAlgorithm = algorithm;
         this.scaleFactor = scaleFactor;
         this.applyNoise = applyNoise;
+        copyPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        BlurMemoryGovernor.register(memoryConsumer, blurView.getContext());
 
         int measuredWidth = blurView.getMeasuredWidth();
         int measuredHeight = blurView.getMeasuredHeight();
@@ -93,7 +243,11 @@ public final class PreDrawBlurController implements BlurController {
     @SuppressWarnings("WeakerAccess")
     void init(int measuredWidth, int measuredHeight) {
         setBlurAutoUpdate(true);
-        SizeScaler sizeScaler = new SizeScaler(scaleFactor);
+        if (memoryScale > 1f && !reducingResolution && BlurMemoryGovernor.hasHeadroom(3 * getRetainedBytes())) {
+            // The memory pressure is over, one step at a time. Twice the resolution takes four times the memory
+            memoryScale /= 2;
+        }
+        SizeScaler sizeScaler = new SizeScaler(scaleFactor * memoryScale);
         if (sizeScaler.isZeroSized(measuredWidth, measuredHeight)) {
             // Will be initialized later when the View reports a size change
             blurView.setWillNotDraw(true);
@@ -102,29 +256,703 @@ public final class PreDrawBlurController implements BlurController {
 
         blurView.setWillNotDraw(false);
         SizeScaler.Size bitmapSize = sizeScaler.scale(measuredWidth, measuredHeight);
-        internalBitmap = Bitmap.createBitmap(bitmapSize.width, bitmapSize.height, blurAlgorithm.getSupportedBitmapConfig());
-        internalCanvas = new BlurViewCanvas(internalBitmap);
+        if (staticBackground != null) {
+            // The shared background is drawn instead, own bitmaps would never be used
+            releaseBitmaps();
+        } else if (internalBitmap == null || internalBitmap.getWidth() != bitmapSize.width
+                || internalBitmap.getHeight() != bitmapSize.height) {
+            replaceBitmaps(bitmapSize.width, bitmapSize.height);
+        }
+        hasSignatures = false;
+        pendingScrollX = 0f;
+        pendingScrollY = 0f;
+        bitmapGeneration++;
+        capturedPartially = false;
+        hasPendingSnapshot = false;
         initialized = true;
-        // Usually it's not needed, because `onPreDraw` updates the blur anyway.
-        // But it handles cases when the PreDraw listener is attached to a different Window, for example
-        // when the BlurView is in a Dialog window, but the root is in the Activity.
-        // Previously it was done in `draw`, but it was causing potential side effects and Jetpack Compose crashes
-        updateBlur();
+        if (!rehydrating) {
+            // Served by the next pre-draw pass, also when the BlurView is in a different Window than the root,
+            // for example in a Dialog over the Activity. Blurring right away would capture twice per frame
+            // during a size animation.
+            // Previously it was done in `draw`, but it was causing potential side effects and Jetpack Compose crashes
+            requestUpdate();
+        }
     }
 
     @SuppressWarnings("WeakerAccess")
     public void updateBlur() {
+        if (blurEnabled && hibernated) {
+            rehydrate();
+            return;
+        }
         if (!blurEnabled || !initialized) {
             return;
         }
 
+        if (occlusion.update(blurView)) {
+            stats.setCoveredFraction(occlusion.getCoveredFraction());
+        }
+        if (isAsyncBlurActive()) {
+            updateBlurAsync();
+            return;
+        }
+        if (workerJobInFlight) {
+            // Picked up once the worker is done
+            updateRequestedDuringJob = true;
+            return;
+        }
+
+        updateSnapshotOffset();
+        if (staticBackground != null) {
+            updateStaticBackground();
+            return;
+        }
+        if (pictureCaptureEnabled) {
+            recordAndBlurPicture();
+            return;
+        }
+        if (blurAlgorithm.canModifyBitmap() && !isSameSize(blurredBitmap, internalBitmap)) {
+            // Kept on screen by a worker mode across a size change, the synchronous paths write into it
+            BlurBitmapPool.releaseAfterNextFrame(blurredBitmap);
+            blurredBitmap = BlurBitmapPool.acquire(internalBitmap.getWidth(), internalBitmap.getHeight(), internalBitmap.getConfig());
+            blurredCanvas.setBitmap(blurredBitmap);
+            hasSignatures = false;
+        }
+        trackScrollSource();
+        if (pendingScrollX != 0f || pendingScrollY != 0f) {
+            if (!updateScrolledContent()) {
+                pendingScrollX = 0f;
+                pendingScrollY = 0f;
+                // Reported in the already scrolled coordinates, the full capture covers it anyway
+                pendingDirtyArea.setEmpty();
+            } else if (pendingDirtyArea.isEmpty()) {
+                return;
+            }
+        }
+        if (!pendingDirtyArea.isEmpty()) {
+            boolean handled = updateDirtyArea();
+            pendingDirtyArea.setEmpty();
+            if (handled) {
+                return;
+            }
+        }
+
+        if (occlusion.isFullyCovered()) {
+            // Nothing to see, catches up once uncovered
+            stats.recordSnapshotCacheHit();
+            capturedPartially = true;
+            return;
+        }
+        if (findPartiallyVisibleRegion(visibleRegion)) {
+            updateVisibleRegion();
+            return;
+        }
+        if (capturedPartially) {
+            // The rest of the blurredBitmap is outdated
+            capturedPartially = false;
+            hasSignatures = false;
+        }
+
+        captureSnapshot(null);
+        capturedLeft = snapshotLeft;
+        capturedTop = snapshotTop;
+
+        findChangedRegion(changedRegion);
+        if (changedRegion.isEmpty()) {
+            stats.recordSnapshotCacheHit();
+            return;
+        }
+        if (isWorthBlurringIncrementally(changedRegion)) {
+            stats.recordIncrementalBlur();
+            blurRegion(changedRegion);
+            return;
+        }
+        stats.recordSnapshotCacheMiss();
+        blurAndSave();
+    }
+
+    /**
+     * @param outRegion visible part of the BlurView in snapshot bitmap pixels
+     * @return true if the BlurView is clipped, partially offscreen or covered by opaque children,
+     * enough to capture and blur only the visible part
+     */
+    private boolean findPartiallyVisibleRegion(@NonNull Rect outRegion) {
+        if (!blurAlgorithm.canModifyBitmap() || !blurView.getLocalVisibleRect(visibleRect)
+                || !visibleRect.intersect(occlusion.getUncoveredBounds())) {
+            return false;
+        }
+        int width = internalBitmap.getWidth();
+        int height = internalBitmap.getHeight();
+        // https://github.com/Dimezis/BlurView/issues/128
+        float scaleFactorH = (float) blurView.getHeight() / height;
+        float scaleFactorW = (float) blurView.getWidth() / width;
+        outRegion.set(
+                (int) Math.floor(visibleRect.left / scaleFactorW),
+                (int) Math.floor(visibleRect.top / scaleFactorH),
+                (int) Math.ceil(visibleRect.right / scaleFactorW),
+                (int) Math.ceil(visibleRect.bottom / scaleFactorH)
+        );
+        if (!outRegion.intersect(0, 0, width, height)) {
+            return false;
+        }
+        return isWorthBlurringRegion(outRegion);
+    }
+
+    /**
+     * Captures and blurs only the visible part of the BlurView, with the blur radius around it.
+     * The rest of the blurredBitmap is left as is, so the drawing doesn't change.
+     */
+    private void updateVisibleRegion() {
+        expandRegion(visibleRegion);
+        captureSnapshot(inputRegion);
+        capturedLeft = snapshotLeft;
+        capturedTop = snapshotTop;
+        capturedPartially = true;
+
+        // Outside of the captured area the snapshot bitmap holds leftovers, which don't matter
+        findChangedRegion(changedRegion);
+        if (!changedRegion.intersect(visibleRegion)) {
+            stats.recordSnapshotCacheHit();
+            return;
+        }
+        stats.recordIncrementalBlur();
+        blurRegion(changedRegion);
+    }
+
+    private boolean isAsyncBlurActive() {
+        return asyncBlurEnabled && blurAlgorithm.canModifyBitmap()
+                && staticBackground == null && !pictureCaptureEnabled;
+    }
+
+    /**
+     * Captures on the main thread and leaves the blur to the worker.
+     * If the worker is still busy, the snapshot waits for it, replaced by any newer snapshot in the meantime.
+     */
+    private void updateBlurAsync() {
+        updateSnapshotOffset();
+        captureSnapshot(null);
+        findChangedRegion(changedRegion);
+        if (changedRegion.isEmpty()) {
+            stats.recordSnapshotCacheHit();
+            return;
+        }
+        if (workerJobInFlight) {
+            hasPendingSnapshot = true;
+            return;
+        }
+        submitSnapshot();
+    }
+
+    private void submitSnapshot() {
+        if (spareBitmap == null) {
+            spareBitmap = BlurBitmapPool.acquire(internalBitmap.getWidth(), internalBitmap.getHeight(), internalBitmap.getConfig());
+        }
+        final Bitmap snapshot = internalBitmap;
+        final float radius = getScaledBlurRadius();
+        final int generation = bitmapGeneration;
+        internalBitmap = spareBitmap;
+        internalCanvas.setBitmap(internalBitmap);
+        spareBitmap = null;
+
+        workerJobInFlight = true;
+        BlurExecutor.execute(this, () -> {
+            Bitmap blurred = blurAlgorithm.blur(snapshot, radius);
+            BlurExecutor.postToMainThread(() -> {
+                onSnapshotBlurred(blurred, generation);
+                hibernateIfPending();
+            });
+        });
+    }
+
+    private void onSnapshotBlurred(@NonNull Bitmap blurred, int generation) {
+        workerJobInFlight = false;
+        if (algorithmDestroyPending) {
+            BlurBitmapPool.release(blurred);
+            blurAlgorithm.destroy();
+            return;
+        }
+        if (!initialized || blurredBitmap == null) {
+            // Hibernated or switched to the static background meanwhile
+            BlurBitmapPool.release(blurred);
+            hasSignatures = false;
+            hasPendingSnapshot = false;
+            updateScheduler.requestUpdate();
+            blurView.invalidate();
+            updateRequestedDuringJob = false;
+            return;
+        }
+        stats.recordSnapshotCacheMiss();
+        // Also shown if it's blurred for an older size, it's stretched to the view until the next result
+        Bitmap previous = blurredBitmap;
+        blurredBitmap = blurred;
+        blurredCanvas.setBitmap(blurredBitmap);
+        awaitingFirstBlur = false;
+        blurView.invalidate();
+
+        if (generation != bitmapGeneration) {
+            BlurBitmapPool.releaseAfterNextFrame(previous);
+            if (hasPendingSnapshot && isAsyncBlurActive()) {
+                // Captured at the new size already, and its tiles are no longer reported as changed
+                hasPendingSnapshot = false;
+                submitSnapshot();
+            } else {
+                // The next frame blurs everything again
+                hasSignatures = false;
+                hasPendingSnapshot = false;
+                updateScheduler.requestUpdate();
+            }
+            updateRequestedDuringJob = false;
+            return;
+        }
+        if (!isAsyncBlurActive()) {
+            // Switched to a synchronous mode meanwhile, which has to start from scratch
+            BlurBitmapPool.releaseAfterNextFrame(previous);
+            hasSignatures = false;
+            hasPendingSnapshot = false;
+            updateRequestedDuringJob = false;
+            return;
+        }
+        if (isSameSize(previous, internalBitmap)) {
+            spareBitmap = previous;
+        } else {
+            // Kept on screen across a size change, the spare is acquired for the current size when needed
+            BlurBitmapPool.releaseAfterNextFrame(previous);
+        }
+        if (hasPendingSnapshot) {
+            hasPendingSnapshot = false;
+            submitSnapshot();
+        }
+    }
+
+    /**
+     * Enables/disables the asynchronous blur.
+     * The snapshot is still captured on the main thread, but blurred on a worker thread,
+     * using a ring of three bitmaps: the displayed one, the one being blurred, and the one being captured into.
+     * The main thread displays the last completed result, so the blur lags one frame behind the content.
+     * If the worker is busy, only the latest snapshot waits for it, so the work never piles up.
+     * Disabled by default.
+     * <p>
+     * Only takes effect with a {@link BlurAlgorithm} that can modify the bitmap in place.
+     */
+    public PreDrawBlurController setAsyncBlurEnabled(boolean enabled) {
+        this.asyncBlurEnabled = enabled;
+        if (!enabled && !workerJobInFlight) {
+            BlurBitmapPool.releaseAfterNextFrame(spareBitmap);
+            spareBitmap = null;
+            hasPendingSnapshot = false;
+        }
+        return this;
+    }
+
+    /**
+     * Records the snapshot into a Picture, which is cheap, and leaves rasterizing and blurring it to the worker.
+     */
+    private void recordAndBlurPicture() {
+        int width = internalBitmap.getWidth();
+        int height = internalBitmap.getHeight();
+        if (workerBitmap == null || workerBitmap.getWidth() != width || workerBitmap.getHeight() != height) {
+            // The previously displayed bitmap, kept across a size change
+            BlurBitmapPool.releaseAfterNextFrame(workerBitmap);
+            workerBitmap = BlurBitmapPool.acquire(width, height, blurAlgorithm.getSupportedBitmapConfig());
+            workerCanvas = new Canvas(workerBitmap);
+        }
+        if (picture == null) {
+            picture = new Picture();
+        }
+        Canvas recordingCanvas = picture.beginRecording(blurView.getWidth(), blurView.getHeight());
+        BlurViewCanvas.setRecordingCanvas(recordingCanvas);
+        try {
+            if (frameClearDrawable != null) {
+                frameClearDrawable.draw(recordingCanvas);
+            }
+            recordingCanvas.translate(-snapshotLeft, -snapshotTop);
+            rootView.draw(recordingCanvas);
+        } catch (Exception e) {
+            Log.e("BlurView", "Error during snapshot recording", e);
+        } finally {
+            BlurViewCanvas.setRecordingCanvas(null);
+            picture.endRecording();
+        }
+
+        final Picture recorded = picture;
+        final Bitmap bitmap = workerBitmap;
+        final Canvas canvas = workerCanvas;
+        final float radius = getScaledBlurRadius();
+        final int generation = bitmapGeneration;
+        // https://github.com/Dimezis/BlurView/issues/128
+        final float scaleFactorH = (float) blurView.getHeight() / height;
+        final float scaleFactorW = (float) blurView.getWidth() / width;
+        workerJobInFlight = true;
+        BlurExecutor.execute(this, () -> {
+            Bitmap blurred = null;
+            try {
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                canvas.save();
+                canvas.scale(1 / scaleFactorW, 1 / scaleFactorH);
+                recorded.draw(canvas);
+                canvas.restore();
+                blurred = blurAlgorithm.blur(bitmap, radius);
+            } catch (Exception e) {
+                // Can potentially fail on rendering Hardware Bitmaps or something like that
+                Log.e("BlurView", "Error during snapshot rasterization", e);
+            }
+            final Bitmap result = blurred;
+            BlurExecutor.postToMainThread(() -> {
+                onPictureBlurred(result, generation);
+                hibernateIfPending();
+            });
+        });
+    }
+
+    private void onPictureBlurred(@Nullable Bitmap blurred, int generation) {
+        workerJobInFlight = false;
+        boolean displayable = blurred != null && initialized && blurredBitmap != null && !algorithmDestroyPending;
+        if (blurAlgorithm.canModifyBitmap() && !displayable) {
+            // Nobody is going to display or rasterize into it anymore
+            BlurBitmapPool.release(blurred);
+        }
+        if (algorithmDestroyPending) {
+            blurAlgorithm.destroy();
+            return;
+        }
+        if (displayable) {
+            stats.recordSnapshotCacheMiss();
+            // Also shown if it's blurred for an older size, it's stretched to the view until the next result
+            if (blurAlgorithm.canModifyBitmap()) {
+                Bitmap previous = blurredBitmap;
+                blurredBitmap = blurred;
+                blurredCanvas.setBitmap(blurredBitmap);
+                // The displayed bitmap is rasterized into next time, unless the mode has been disabled
+                // or the bitmaps have been replaced meanwhile
+                if (workerCanvas != null && workerBitmap == blurred) {
+                    workerBitmap = previous;
+                    workerCanvas.setBitmap(workerBitmap);
+                } else {
+                    BlurBitmapPool.releaseAfterNextFrame(previous);
+                }
+            } else {
+                blurredBitmap = blurred;
+            }
+            // The blurredBitmap no longer matches the tile signatures
+            hasSignatures = false;
+            awaitingFirstBlur = false;
+            blurView.invalidate();
+        } else if (updateRequestedDuringJob) {
+            blurView.invalidate();
+        }
+        updateRequestedDuringJob = false;
+    }
+
+    /**
+     * Enables/disables the Picture capture mode.
+     * The snapshot is only recorded into a {@link Picture} on the main thread,
+     * while rasterizing and blurring it is done on a worker thread.
+     * The main thread displays the last completed result, so the blur lags one frame behind the content.
+     * Disabled by default.
+     * <p>
+     * Views drawing Hardware Bitmaps can't be rasterized on the worker, they'll be missing from the snapshot.
+     */
+    public PreDrawBlurController setPictureCaptureEnabled(boolean enabled) {
+        this.pictureCaptureEnabled = enabled;
+        if (!enabled) {
+            picture = null;
+            if (!workerJobInFlight) {
+                BlurBitmapPool.releaseAfterNextFrame(workerBitmap);
+            }
+            workerBitmap = null;
+            workerCanvas = null;
+        }
+        return this;
+    }
+
+    private void updateStaticBackground() {
+        if (staticBackground.update(blurAlgorithm, frameClearDrawable)) {
+            stats.recordSnapshotCacheMiss();
+        } else {
+            stats.recordSnapshotCacheHit();
+            if (snapshotLeft != capturedLeft || snapshotTop != capturedTop) {
+                // Moved over the static background, only has to draw a different part of it
+                blurView.invalidate();
+            }
+        }
+        capturedLeft = snapshotLeft;
+        capturedTop = snapshotTop;
+    }
+
+    /**
+     * Enables/disables the static background mode, for BlurViews moving over content that doesn't change,
+     * like sliding panels, draggable sheets or dialogs.
+     * <p>
+     * The whole root View is blurred once, and the blurred result is shared by all BlurViews in this mode
+     * with the same root View, scale factor and blur radius. Each of them draws the part under itself,
+     * so moving doesn't cause any capturing or blurring.
+     * The root View is blurred again only after {@link #invalidateStaticBackground()} or a root View size change.
+     */
+    public PreDrawBlurController setStaticBackgroundEnabled(boolean enabled) {
+        if (enabled == (staticBackground != null)) {
+            return this;
+        }
+        if (enabled) {
+            staticBackground = StaticBackgroundBlur.acquire(rootView, blurView, scaleFactor, blurRadius);
+            // Own bitmaps aren't used in this mode, and a result still being blurred is dropped
+            releaseBitmaps();
+            bitmapGeneration++;
+        } else {
+            staticBackground.release(blurView);
+            staticBackground = null;
+            if (initialized) {
+                // Own bitmaps are allocated again, and the snapshot captured from scratch
+                init(blurView.getMeasuredWidth(), blurView.getMeasuredHeight());
+            }
+        }
+        blurView.invalidate();
+        return this;
+    }
+
+    /**
+     * Makes the static background blurred again on the next frame, for all BlurViews sharing it.
+     * Call it when the content under the BlurViews changes in the static background mode.
+     *
+     * @see #setStaticBackgroundEnabled(boolean)
+     */
+    public void invalidateStaticBackground() {
+        if (staticBackground != null) {
+            staticBackground.invalidate();
+            updateScheduler.requestUpdate();
+            blurView.invalidate();
+        }
+    }
+
+    private boolean shouldUpdateOnThisFrame() {
+        if (hibernated) {
+            // First visible frame after being hidden, rebuilt right away
+            return true;
+        }
+        if (!initialized) {
+            return false;
+        }
+        updateSnapshotOffset();
+        boolean moved = snapshotLeft != lastFrameLeft || snapshotTop != lastFrameTop;
+        lastFrameLeft = snapshotLeft;
+        lastFrameTop = snapshotTop;
+        boolean animating = moved || blurView.getAnimation() != null;
+        // Any invalidated View marks all of its parents dirty until they're drawn
+        boolean contentChanged = moved || rootView.isDirty();
+
+        long now = SystemClock.uptimeMillis();
+        if (updateScheduler.shouldUpdate(now, contentChanged, animating)) {
+            return true;
+        }
+        long delay = updateScheduler.scheduleTrailingUpdate(now);
+        if (delay != BlurUpdateScheduler.NO_UPDATE) {
+            blurView.postInvalidateDelayed(delay);
+        }
+        return false;
+    }
+
+    @Override
+    public BlurViewFacade setUpdatePolicy(@NonNull BlurUpdatePolicy policy) {
+        updateScheduler.setPolicy(policy);
+        blurView.invalidate();
+        return this;
+    }
+
+    /**
+     * Re-captures and re-blurs only the area reported via {@link #notifyContentChanged(Rect)}.
+     *
+     * @return false if a full update is needed instead
+     */
+    private boolean updateDirtyArea() {
+        // A moved BlurView shifts the whole snapshot
+        if (!canBlurIncrementally() || snapshotLeft != capturedLeft || snapshotTop != capturedTop) {
+            return false;
+        }
+        // https://github.com/Dimezis/BlurView/issues/128
+        float scaleFactorH = (float) blurView.getHeight() / internalBitmap.getHeight();
+        float scaleFactorW = (float) blurView.getWidth() / internalBitmap.getWidth();
+        changedRegion.set(
+                (int) Math.floor((pendingDirtyArea.left - snapshotLeft) / scaleFactorW),
+                (int) Math.floor((pendingDirtyArea.top - snapshotTop) / scaleFactorH),
+                (int) Math.ceil((pendingDirtyArea.right - snapshotLeft) / scaleFactorW),
+                (int) Math.ceil((pendingDirtyArea.bottom - snapshotTop) / scaleFactorH)
+        );
+        if (!changedRegion.intersect(0, 0, internalBitmap.getWidth(), internalBitmap.getHeight())) {
+            // Changed outside of this BlurView
+            return true;
+        }
+        if (!isWorthBlurringIncrementally(changedRegion)) {
+            return false;
+        }
+        // Everything the blur of the changed region reads from has to be up to date
+        expandRegion(changedRegion);
+        captureSnapshot(inputRegion);
+        // The next full capture compares against the fresh content, so it doesn't blur the same change again
+        if (hasSignatures) {
+            refreshTileSignatures(changedRegion, -1);
+        }
+
+        stats.recordIncrementalBlur();
+        blurRegion(changedRegion);
+        return true;
+    }
+
+    /**
+     * Shifts the blurredBitmap by the scrolled distance, then captures and blurs only the newly exposed strip.
+     * The pixels within the blur radius of the strip are blurred again too, as they now have new neighbours.
+     *
+     * @return false if a full update is needed instead
+     */
+    private boolean updateScrolledContent() {
+        // Partial capture leaves outdated content around the visible part, which mustn't be scrolled into view
+        if (!canBlurIncrementally() || capturedPartially || snapshotLeft != capturedLeft || snapshotTop != capturedTop
+                || !isSnapshotCoveredByScrollSource()) {
+            return false;
+        }
+        int width = internalBitmap.getWidth();
+        int height = internalBitmap.getHeight();
+        // https://github.com/Dimezis/BlurView/issues/128
+        float scaleFactorH = (float) blurView.getHeight() / height;
+        float scaleFactorW = (float) blurView.getWidth() / width;
+        int result = scrollShift.compute(pendingScrollX, pendingScrollY, scaleFactorW, scaleFactorH, width, height);
+        if (result == ScrollShift.NONE) {
+            // Accumulates until it's a whole snapshot pixel
+            return true;
+        }
+        if (result == ScrollShift.FULL) {
+            return false;
+        }
+        changedRegion.set(scrollShift.exposedLeft, scrollShift.exposedTop, scrollShift.exposedRight, scrollShift.exposedBottom);
+        if (!isWorthBlurringIncrementally(changedRegion)) {
+            return false;
+        }
+        pendingScrollX = scrollShift.remainderX;
+        pendingScrollY = scrollShift.remainderY;
+
+        // The capture is shifted along with the blur, so it stays the reference for the change detection
+        blurredBitmap = shiftBitmap(blurredBitmap, scrollShift.dx, scrollShift.dy);
+        blurredCanvas.setBitmap(blurredBitmap);
+        internalBitmap = shiftBitmap(internalBitmap, scrollShift.dx, scrollShift.dy);
+        internalCanvas.setBitmap(internalBitmap);
+        expandRegion(changedRegion);
+        drawSnapshot(inputRegion);
+        // Rehashed from the shifted capture once the scrolling stops, there's no change detection until then
+        signaturesShifted = true;
+
+        stats.recordIncrementalBlur();
+        blurRegion(changedRegion);
+        // The displayed bitmap has been swapped
+        blurView.invalidate();
+        return true;
+    }
+
+    /**
+     * Draws the bitmap moved by the given distance onto the spare bitmap, which takes its place.
+     * The exposed strip keeps stale pixels, it's overwritten right after.
+     *
+     * @return the shifted bitmap, the given one becomes the spare
+     */
+    @NonNull
+    private Bitmap shiftBitmap(@NonNull Bitmap bitmap, int dx, int dy) {
+        Bitmap shifted = spareBitmap;
+        if (shifted == null || !isSameSize(shifted, bitmap)) {
+            BlurBitmapPool.releaseAfterNextFrame(shifted);
+            shifted = BlurBitmapPool.acquire(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        }
+        if (shiftCanvas == null) {
+            shiftCanvas = new Canvas();
+        }
+        shiftCanvas.setBitmap(shifted);
+        shiftCanvas.drawBitmap(bitmap, dx, dy, copyPaint);
+        shiftCanvas.setBitmap(null);
+        spareBitmap = bitmap;
+        return shifted;
+    }
+
+    private void trackScrollSource() {
+        if (scrollSource == null) {
+            return;
+        }
+        int scrollX = scrollSource.getScrollX();
+        int scrollY = scrollSource.getScrollY();
+        pendingScrollX += scrollX - lastScrollX;
+        pendingScrollY += scrollY - lastScrollY;
+        lastScrollX = scrollX;
+        lastScrollY = scrollY;
+    }
+
+    /**
+     * Only the content that scrolls as a whole can be shifted, a static header next to the list can't.
+     */
+    private boolean isSnapshotCoveredByScrollSource() {
+        if (scrollSource == null) {
+            return true;
+        }
+        scrollSource.getLocationOnScreen(scrollSourceLocation);
+        int left = scrollSourceLocation[0] - rootLocation[0];
+        int top = scrollSourceLocation[1] - rootLocation[1];
+        return left <= snapshotLeft
+                && top <= snapshotTop
+                && left + scrollSource.getWidth() >= snapshotLeft + blurView.getWidth()
+                && top + scrollSource.getHeight() >= snapshotTop + blurView.getHeight();
+    }
+
+    /**
+     * Sets the View whose scrolling moves the content under the BlurView, for example a ScrollView.
+     * While the BlurView stays in place and the View only scrolls, the previous blurred bitmap is shifted,
+     * and only the newly exposed strip is captured and blurred.
+     * <p>
+     * Views that don't scroll via {@link View#getScrollY()}, like RecyclerView,
+     * have to report the scroll via {@link #notifyContentScrolled(int, int)}.
+     */
+    public PreDrawBlurController setScrollSource(@Nullable View scrollSource) {
+        this.scrollSource = scrollSource;
+        if (scrollSource != null) {
+            lastScrollX = scrollSource.getScrollX();
+            lastScrollY = scrollSource.getScrollY();
+        }
+        pendingScrollX = 0f;
+        pendingScrollY = 0f;
+        return this;
+    }
+
+    /**
+     * Notifies that the content under the BlurView has scrolled by the given distance,
+     * same as RecyclerView.OnScrollListener#onScrolled reports it.
+     *
+     * @see #setScrollSource(View)
+     */
+    public void notifyContentScrolled(int dx, int dy) {
+        pendingScrollX += dx;
+        pendingScrollY += dy;
+    }
+
+    /**
+     * @param region area of the snapshot bitmap to capture, or null to capture the whole snapshot
+     */
+    private void captureSnapshot(@Nullable Rect region) {
+        if (signaturesShifted) {
+            // The scrolling has stopped, the shifted capture becomes the reference for the change detection.
+            // A remaining sub-pixel offset is reported as a change, which corrects it with a fresh capture
+            signaturesShifted = false;
+            if (hasSignatures) {
+                snapshotBounds.set(0, 0, internalBitmap.getWidth(), internalBitmap.getHeight());
+                refreshTileSignatures(snapshotBounds, -1);
+            }
+        }
+        drawSnapshot(region);
+    }
+
+    private void drawSnapshot(@Nullable Rect region) {
+        internalCanvas.save();
+        if (region != null) {
+            internalCanvas.clipRect(region);
+        }
         if (frameClearDrawable == null) {
-            internalBitmap.eraseColor(Color.TRANSPARENT);
+            internalCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
         } else {
             frameClearDrawable.draw(internalCanvas);
         }
 
-        internalCanvas.save();
         setupInternalCanvasMatrix();
         try {
             rootView.draw(internalCanvas);
@@ -133,26 +961,221 @@ public final class PreDrawBlurController implements BlurController {
             Log.e("BlurView", "Error during snapshot capturing", e);
         }
         internalCanvas.restore();
+    }
 
-        blurAndSave();
+    /**
+     * Compares the tile signatures of the fresh snapshot with the previous ones.
+     * Only the rows of the current phase are read and hashed, the phase rotates on every call.
+     *
+     * @param outRegion bounds of the changed tiles, empty if nothing has changed
+     */
+    private void findChangedRegion(@NonNull Rect outRegion) {
+        int width = internalBitmap.getWidth();
+        int height = internalBitmap.getHeight();
+        // Algorithms that can't modify the bitmap take over the snapshot bitmap,
+        // so there's no previous result to fall back to
+        if (!changeDetectionEnabled || !blurAlgorithm.canModifyBitmap()) {
+            hasSignatures = false;
+            outRegion.set(0, 0, width, height);
+            return;
+        }
+        int columns = SnapshotSignature.tileCount(width);
+        int rows = SnapshotSignature.tileCount(height);
+        int tileCount = columns * rows;
+        if (rowPixels == null || rowPixels.length < width) {
+            rowPixels = new int[width];
+        }
+        if (currentSignatures == null || currentSignatures.length != tileCount) {
+            tileSignatures = new long[SnapshotSignature.DEFAULT_STEP][tileCount];
+            currentSignatures = new long[tileCount];
+            hasSignatures = false;
+        }
+
+        if (!hasSignatures) {
+            outRegion.set(0, 0, width, height);
+            refreshTileSignatures(outRegion, -1);
+            hasSignatures = true;
+            unchangedPhases = SnapshotSignature.DEFAULT_STEP;
+            return;
+        }
+        signaturePhase = (signaturePhase + 1) % SnapshotSignature.DEFAULT_STEP;
+        long[] previous = tileSignatures[signaturePhase];
+        hashTiles(signaturePhase, 0, columns - 1, 0, rows - 1, currentSignatures);
+        outRegion.setEmpty();
+        for (int tile = 0; tile < tileCount; tile++) {
+            if (currentSignatures[tile] != previous[tile]) {
+                int left = (tile % columns) * SnapshotSignature.TILE_SIZE;
+                int top = (tile / columns) * SnapshotSignature.TILE_SIZE;
+                outRegion.union(left, top, left + SnapshotSignature.TILE_SIZE, top + SnapshotSignature.TILE_SIZE);
+            }
+        }
+        outRegion.intersect(0, 0, width, height);
+        tileSignatures[signaturePhase] = currentSignatures;
+        currentSignatures = previous;
+        if (!outRegion.isEmpty()) {
+            // The other phases haven't seen this snapshot yet, they'd report the same change again on the next frames
+            refreshTileSignatures(outRegion, signaturePhase);
+            unchangedPhases = 0;
+        } else if (unchangedPhases < SnapshotSignature.DEFAULT_STEP) {
+            unchangedPhases++;
+        }
+        if (unchangedPhases < SnapshotSignature.DEFAULT_STEP) {
+            // A change confined to the rows of the other phases, or outside of the changed region, is only found
+            // once they're hashed. The content may have stopped changing, so nothing else would schedule that pass
+            requestUpdate();
+        }
     }
 
     /**
-     * Set up matrix to draw starting from blurView's position
+     * Hashes the tiles covering the region from the current snapshot, in all phases
+     *
+     * @param skipPhase phase that is already up to date, or -1
      */
-    private void setupInternalCanvasMatrix() {
+    private void refreshTileSignatures(@NonNull Rect region, int skipPhase) {
+        int lastColumn = (region.right - 1) / SnapshotSignature.TILE_SIZE;
+        int lastRow = (region.bottom - 1) / SnapshotSignature.TILE_SIZE;
+        int firstColumn = region.left / SnapshotSignature.TILE_SIZE;
+        int firstRow = region.top / SnapshotSignature.TILE_SIZE;
+        for (int phase = 0; phase < SnapshotSignature.DEFAULT_STEP; phase++) {
+            if (phase != skipPhase) {
+                hashTiles(phase, firstColumn, lastColumn, firstRow, lastRow, tileSignatures[phase]);
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of the phase within the tiles straight from the snapshot bitmap, one row at a time
+     */
+    private void hashTiles(int phase, int firstColumn, int lastColumn, int firstRow, int lastRow, @NonNull long[] signatures) {
+        int width = internalBitmap.getWidth();
+        int height = internalBitmap.getHeight();
+        int columns = SnapshotSignature.tileCount(width);
+        SnapshotSignature.resetTiles(signatures, columns, firstColumn, lastColumn, firstRow, lastRow);
+        int left = firstColumn * SnapshotSignature.TILE_SIZE;
+        int count = Math.min(width, (lastColumn + 1) * SnapshotSignature.TILE_SIZE) - left;
+        int bottom = Math.min(height, (lastRow + 1) * SnapshotSignature.TILE_SIZE);
+        int top = firstRow * SnapshotSignature.TILE_SIZE;
+        // First row of the phase within the tiles, the tile size is a multiple of the step
+        for (int y = top + phase; y < bottom; y += SnapshotSignature.DEFAULT_STEP) {
+            internalBitmap.getPixels(rowPixels, 0, count, left, y, count, 1);
+            SnapshotSignature.hashRow(rowPixels, 0, left, count, y, columns, signatures);
+        }
+    }
+
+    private boolean canBlurIncrementally() {
+        return changeDetectionEnabled && hasSignatures && blurAlgorithm.canModifyBitmap();
+    }
+
+    private boolean isWorthBlurringIncrementally(@NonNull Rect changed) {
+        return canBlurIncrementally() && isWorthBlurringRegion(changed);
+    }
+
+    private boolean isWorthBlurringRegion(@NonNull Rect changed) {
+        return IncrementalBlurRegion.isWorthBlurring(changed.width(), changed.height(), getKernelRadius(),
+                internalBitmap.getWidth(), internalBitmap.getHeight());
+    }
+
+    /**
+     * Sets the inputRegion and the outputRegion around the changed region, see {@link IncrementalBlurRegion}
+     */
+    private void expandRegion(@NonNull Rect changed) {
+        incrementalRegion.expand(changed.left, changed.top, changed.right, changed.bottom, getKernelRadius(),
+                internalBitmap.getWidth(), internalBitmap.getHeight());
+        inputRegion.set(incrementalRegion.inputLeft, incrementalRegion.inputTop,
+                incrementalRegion.inputRight, incrementalRegion.inputBottom);
+        outputRegion.set(incrementalRegion.outputLeft, incrementalRegion.outputTop,
+                incrementalRegion.outputRight, incrementalRegion.outputBottom);
+    }
+
+    private int getKernelRadius() {
+        return (int) Math.ceil(getScaledBlurRadius());
+    }
+
+    /**
+     * Blurs the freshly captured snapshot around the changed region and splices the result into the blurredBitmap.
+     */
+    private void blurRegion(@NonNull Rect changed) {
+        expandRegion(changed);
+
+        prepareTileBitmap(inputRegion.width(), inputRegion.height());
+        tileBounds.set(0, 0, inputRegion.width(), inputRegion.height());
+        tileCanvas.drawBitmap(internalBitmap, inputRegion, tileBounds, copyPaint);
+        Bitmap blurredTile = blurAlgorithm.blur(tileBitmap, getScaledBlurRadius());
+
+        tileBounds.set(outputRegion);
+        tileBounds.offset(-inputRegion.left, -inputRegion.top);
+        // Updating the displayed bitmap in place, HW accelerated canvas picks up the new content on its own
+        blurredCanvas.drawBitmap(blurredTile, tileBounds, outputRegion, copyPaint);
+    }
+
+    /**
+     * Makes the tileBitmap the given size. The allocation only grows to the largest size needed so far,
+     * smaller sizes reconfigure it in place, so regions of varying size don't acquire a new bitmap every time.
+     * The content is overwritten right after.
+     */
+    private void prepareTileBitmap(int width, int height) {
+        if (tileBitmap != null && tileBitmap.getWidth() == width && tileBitmap.getHeight() == height) {
+            return;
+        }
+        Bitmap.Config config = blurAlgorithm.getSupportedBitmapConfig();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && tileBitmap != null
+                && tileBitmap.getAllocationByteCount() >= (long) width * height * (tileBitmap.getRowBytes() / tileBitmap.getWidth())) {
+            tileBitmap.reconfigure(width, height, config);
+            tileCanvas.setBitmap(tileBitmap);
+            return;
+        }
+        int allocatedWidth = width;
+        int allocatedHeight = height;
+        if (tileBitmap != null) {
+            allocatedWidth = Math.max(width, tileBitmap.getWidth());
+            allocatedHeight = Math.max(height, tileBitmap.getHeight());
+            BlurBitmapPool.release(tileBitmap);
+        }
+        tileBitmap = BlurBitmapPool.acquire(allocatedWidth, allocatedHeight, config);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            tileBitmap.reconfigure(width, height, config);
+        } else if (allocatedWidth != width || allocatedHeight != height) {
+            // Only the exact size can be used
+            BlurBitmapPool.release(tileBitmap);
+            tileBitmap = BlurBitmapPool.acquire(width, height, config);
+        }
+        if (tileCanvas == null) {
+            tileCanvas = new Canvas(tileBitmap);
+        } else {
+            tileCanvas.setBitmap(tileBitmap);
+        }
+    }
+
+    /**
+     * Notifies that only the given area of the root View has changed.
+     * On the next update only this area, expanded by the blur radius, is captured and blurred again,
+     * as long as the BlurView hasn't moved.
+     *
+     * @param dirty changed area in root View coordinates
+     */
+    public void notifyContentChanged(@NonNull Rect dirty) {
+        pendingDirtyArea.union(dirty);
+        updateScheduler.requestUpdate();
+    }
+
+    private void updateSnapshotOffset() {
         rootView.getLocationOnScreen(rootLocation);
         blurView.getLocationOnScreen(blurViewLocation);
 
-        int left = blurViewLocation[0] - rootLocation[0];
-        int top = blurViewLocation[1] - rootLocation[1];
+        snapshotLeft = blurViewLocation[0] - rootLocation[0];
+        snapshotTop = blurViewLocation[1] - rootLocation[1];
+    }
 
+    /**
+     * Set up matrix to draw starting from blurView's position
+     */
+    private void setupInternalCanvasMatrix() {
         // https://github.com/Dimezis/BlurView/issues/128
         float scaleFactorH = (float) blurView.getHeight() / internalBitmap.getHeight();
         float scaleFactorW = (float) blurView.getWidth() / internalBitmap.getWidth();
 
-        float scaledLeftPosition = -left / scaleFactorW;
-        float scaledTopPosition = -top / scaleFactorH;
+        float scaledLeftPosition = -snapshotLeft / scaleFactorW;
+        float scaledTopPosition = -snapshotTop / scaleFactorH;
 
         internalCanvas.translate(scaledLeftPosition, scaledTopPosition);
         internalCanvas.scale(1 / scaleFactorW, 1 / scaleFactorH);
@@ -160,22 +1183,43 @@ public final class PreDrawBlurController implements BlurController {
 
     @Override
     public boolean draw(Canvas canvas) {
-        if (!blurEnabled || !initialized) {
+        if (!blurEnabled || (!initialized && !hibernated)) {
             return true;
         }
         // Not blurring itself or other BlurViews to not cause recursive draw calls
         // Related: https://github.com/Dimezis/BlurView/issues/110
-        if (canvas instanceof BlurViewCanvas) {
+        if (BlurViewCanvas.isSnapshotCanvas(canvas)) {
             return false;
         }
+        if (hibernated) {
+            // Drawn without a pre-draw pass, for example with the auto update disabled
+            requestUpdate();
+        }
 
-        // https://github.com/Dimezis/BlurView/issues/128
-        float scaleFactorH = (float) blurView.getHeight() / internalBitmap.getHeight();
-        float scaleFactorW = (float) blurView.getWidth() / internalBitmap.getWidth();
-
+        if (occlusion.update(blurView)) {
+            // An opaque child has moved or been hidden without a blur update,
+            // for example between the updates of the policy. The area it uncovered may not be blurred yet
+            stats.setCoveredFraction(occlusion.getCoveredFraction());
+            // Invalidates as well, a single request serves it on the next frame
+            requestUpdate();
+        }
+        // Covered by opaque children
         canvas.save();
-        canvas.scale(scaleFactorW, scaleFactorH);
-        blurAlgorithm.render(canvas, internalBitmap);
+        occlusion.clipOutCovered(canvas);
+        canvas.save();
+        if (hibernated || awaitingFirstBlur) {
+            canvas.drawColor(placeholderColor);
+        } else if (staticBackground != null) {
+            canvas.clipRect(0, 0, blurView.getWidth(), blurView.getHeight());
+            staticBackground.draw(canvas, blurAlgorithm, snapshotLeft, snapshotTop);
+        } else {
+            // https://github.com/Dimezis/BlurView/issues/128
+            float scaleFactorH = (float) blurView.getHeight() / blurredBitmap.getHeight();
+            float scaleFactorW = (float) blurView.getWidth() / blurredBitmap.getWidth();
+
+            canvas.scale(scaleFactorW, scaleFactorH);
+            blurAlgorithm.render(canvas, blurredBitmap);
+        }
         canvas.restore();
         if (applyNoise) {
             Noise.apply(canvas, blurView.getContext(), blurView.getWidth(), blurView.getHeight());
@@ -183,12 +1227,25 @@ public final class PreDrawBlurController implements BlurController {
         if (overlayColor != TRANSPARENT) {
             canvas.drawColor(overlayColor);
         }
+        canvas.restore();
         return true;
     }
 
     private void blurAndSave() {
-        internalBitmap = blurAlgorithm.blur(internalBitmap, blurRadius);
-        if (!blurAlgorithm.canModifyBitmap()) {
+        Bitmap blurred = blurAlgorithm.blur(internalBitmap, getScaledBlurRadius());
+        awaitingFirstBlur = false;
+        if (blurAlgorithm.canModifyBitmap()) {
+            // The next snapshot goes into the previously displayed bitmap
+            internalBitmap = blurredBitmap;
+            blurredBitmap = blurred;
+            internalCanvas.setBitmap(internalBitmap);
+            blurredCanvas.setBitmap(blurredBitmap);
+            // HW accelerated canvas holds a reference to the previously drawn bitmap,
+            // so the View has to be redrawn to pick up the swapped one
+            blurView.invalidate();
+        } else {
+            internalBitmap = blurred;
+            blurredBitmap = blurred;
             internalCanvas.setBitmap(internalBitmap);
         }
     }
@@ -204,13 +1261,282 @@ public final class PreDrawBlurController implements BlurController {
     @Override
     public void destroy() {
         setBlurAutoUpdate(false);
-        blurAlgorithm.destroy();
+        blurView.removeCallbacks(resolutionRestore);
+        setStaticBackgroundEnabled(false);
+        if (workerJobInFlight && BlurExecutor.cancel(this)) {
+            // Hasn't started, its result callback will never come
+            workerJobInFlight = false;
+        }
+        if (workerJobInFlight) {
+            algorithmDestroyPending = true;
+        } else {
+            blurAlgorithm.destroy();
+        }
+        releaseBitmaps();
+        BlurMemoryGovernor.unregister(memoryConsumer);
         initialized = false;
     }
 
+    /**
+     * Releases the bitmaps and the algorithm resources while the UI is hidden.
+     * Everything is rebuilt from the pool on the next update, the last blur's average color is shown until then.
+     */
+    private void hibernate() {
+        if (hibernated || !initialized) {
+            return;
+        }
+        if (workerJobInFlight) {
+            // A running job is using the bitmaps and the algorithm
+            hibernatePending = true;
+            return;
+        }
+        hibernatePending = false;
+        if (blurredBitmap != null && staticBackground == null) {
+            placeholderColor = averageColor(blurredBitmap);
+        }
+        releaseBitmaps();
+        if (blurAlgorithm instanceof RenderScriptBlur) {
+            ((RenderScriptBlur) blurAlgorithm).trimMemory();
+        } else if (blurAlgorithm instanceof BoxBlur) {
+            ((BoxBlur) blurAlgorithm).trimMemory();
+        }
+        if (staticBackground != null) {
+            staticBackground.trimMemory();
+        }
+        picture = null;
+        initialized = false;
+        hibernated = true;
+        updateScheduler.requestUpdate();
+    }
+
+    private void hibernateIfPending() {
+        if (hibernatePending && !workerJobInFlight) {
+            hibernate();
+        }
+    }
+
+    private void rehydrate() {
+        hibernated = false;
+        hibernatePending = false;
+        // Everything has been released meanwhile, the budget is enforced again once the bitmaps are allocated
+        memoryScale = 1f;
+        rehydrating = true;
+        try {
+            init(blurView.getMeasuredWidth(), blurView.getMeasuredHeight());
+        } finally {
+            rehydrating = false;
+        }
+        // Already in an update pass
+        updateBlur();
+        // The synchronous modes have blurred already
+        awaitingFirstBlur = initialized && (workerJobInFlight || hasPendingSnapshot);
+        blurView.invalidate();
+    }
+
+    /**
+     * Mean of a sparse grid of pixels, the bitmap is blurred already so the samples are representative
+     */
+    @ColorInt
+    private static int averageColor(@NonNull Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int columns = Math.min(width, AVERAGE_COLOR_SAMPLES);
+        int rows = Math.min(height, AVERAGE_COLOR_SAMPLES);
+        long a = 0, r = 0, g = 0, b = 0;
+        for (int row = 0; row < rows; row++) {
+            int y = (2 * row + 1) * height / (2 * rows);
+            for (int column = 0; column < columns; column++) {
+                int x = (2 * column + 1) * width / (2 * columns);
+                int color = bitmap.getPixel(x, y);
+                a += Color.alpha(color);
+                r += Color.red(color);
+                g += Color.green(color);
+                b += Color.blue(color);
+            }
+        }
+        int count = columns * rows;
+        return Color.argb((int) (a / count), (int) (r / count), (int) (g / count), (int) (b / count));
+    }
+
+    /**
+     * Steps the resolution lowered by the memory governor back up once there's headroom again.
+     * Retried periodically while it's lowered, a static screen has no updates that would do it.
+     */
+    private void restoreResolution() {
+        if (!initialized || memoryScale <= 1f) {
+            // Rehydrating after hibernation starts from the full resolution anyway
+            return;
+        }
+        if (BlurMemoryGovernor.hasHeadroom(3 * getRetainedBytes())) {
+            // Steps the scale up and requests the update
+            init(blurView.getMeasuredWidth(), blurView.getMeasuredHeight());
+        }
+        if (memoryScale > 1f) {
+            blurView.postDelayed(resolutionRestore, RESOLUTION_RESTORE_DELAY_MS);
+        }
+    }
+
+    /**
+     * The snapshot is smaller after a memory downgrade, so the radius shrinks with it to keep the same look
+     */
+    private float getScaledBlurRadius() {
+        return blurRadius / memoryScale;
+    }
+
+    /**
+     * @return bytes held by the snapshot bitmaps of this controller
+     */
+    long getRetainedBytes() {
+        return memoryConsumer.getRetainedBytes();
+    }
+
+    private final BlurMemoryGovernor.Consumer memoryConsumer = new BlurMemoryGovernor.Consumer() {
+        @Override
+        public long getRetainedBytes() {
+            long bytes = byteCount(internalBitmap) + byteCount(spareBitmap) + byteCount(tileBitmap) + byteCount(workerBitmap);
+            if (blurredBitmap != internalBitmap) {
+                bytes += byteCount(blurredBitmap);
+            }
+            return bytes;
+        }
+
+        @Override
+        public void trimCaches() {
+            // Re-acquired when needed
+            BlurBitmapPool.releaseAfterNextFrame(spareBitmap);
+            spareBitmap = null;
+            BlurBitmapPool.release(tileBitmap);
+            tileBitmap = null;
+            if (!workerJobInFlight) {
+                BlurBitmapPool.releaseAfterNextFrame(workerBitmap);
+                workerBitmap = null;
+                workerCanvas = null;
+            }
+            picture = null;
+        }
+
+        @Override
+        public void hibernate() {
+            PreDrawBlurController.this.hibernate();
+        }
+
+        @Override
+        public void reduceResolution() {
+            if (memoryScale >= MAX_MEMORY_SCALE) {
+                return;
+            }
+            memoryScale *= 2;
+            if (initialized) {
+                // The smaller bitmaps are acquired for the new scale
+                reducingResolution = true;
+                try {
+                    init(blurView.getMeasuredWidth(), blurView.getMeasuredHeight());
+                } finally {
+                    reducingResolution = false;
+                }
+            }
+            blurView.removeCallbacks(resolutionRestore);
+            blurView.postDelayed(resolutionRestore, RESOLUTION_RESTORE_DELAY_MS);
+        }
+    };
+
+    private static long byteCount(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return 0;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * Acquires the bitmaps for a new size from the pool, which reuses the memory of similar sizes,
+     * so a BlurView animating its size doesn't allocate on every frame.
+     * The displayed bitmap is never reconfigured. In the worker modes it's kept and stretched to the view
+     * until the first result for the new size replaces it, instead of showing a blank bitmap meanwhile.
+     */
+    private void replaceBitmaps(int width, int height) {
+        Bitmap displayed = null;
+        if (initialized && blurAlgorithm.canModifyBitmap() && (isAsyncBlurActive() || pictureCaptureEnabled)) {
+            displayed = blurredBitmap;
+            blurredBitmap = null;
+        }
+        releaseBitmaps();
+        Bitmap.Config config = blurAlgorithm.getSupportedBitmapConfig();
+        internalBitmap = BlurBitmapPool.acquire(width, height, config);
+        internalCanvas = new BlurViewCanvas(internalBitmap);
+        if (displayed != null) {
+            blurredBitmap = displayed;
+            blurredCanvas.setBitmap(blurredBitmap);
+        } else if (blurAlgorithm.canModifyBitmap()) {
+            blurredBitmap = BlurBitmapPool.acquire(width, height, config);
+            blurredCanvas = new Canvas(blurredBitmap);
+        } else {
+            blurredBitmap = internalBitmap;
+        }
+        stats.recordBitmapReallocation();
+        BlurMemoryGovernor.enforceBudget();
+    }
+
+    private static boolean isSameSize(@NonNull Bitmap first, @NonNull Bitmap second) {
+        return first.getWidth() == second.getWidth() && first.getHeight() == second.getHeight();
+    }
+
+    /**
+     * Gives the bitmaps owned by the controller back to the pool.
+     * Bitmaps returned by an algorithm that can't modify the bitmap belong to the algorithm,
+     * and bitmaps of a running worker job are released once it's done.
+     */
+    private void releaseBitmaps() {
+        // All but the tile bitmap are displayed at some point, the last frame may still draw them
+        if (blurAlgorithm.canModifyBitmap()) {
+            BlurBitmapPool.releaseAfterNextFrame(internalBitmap);
+            BlurBitmapPool.releaseAfterNextFrame(blurredBitmap);
+        }
+        BlurBitmapPool.releaseAfterNextFrame(spareBitmap);
+        BlurBitmapPool.release(tileBitmap);
+        if (!workerJobInFlight) {
+            BlurBitmapPool.releaseAfterNextFrame(workerBitmap);
+        }
+        internalBitmap = null;
+        blurredBitmap = null;
+        spareBitmap = null;
+        tileBitmap = null;
+        workerBitmap = null;
+        workerCanvas = null;
+    }
+
+    @NonNull
+    @Override
+    public BlurStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Enables/disables skipping the blur when the captured snapshot is identical to the previous one.
+     * Enabled by default.
+     *
+     * @see BlurStats#getSnapshotCacheHits()
+     */
+    public PreDrawBlurController setChangeDetectionEnabled(boolean enabled) {
+        this.changeDetectionEnabled = enabled;
+        hasSignatures = false;
+        return this;
+    }
+
     @Override
     public BlurViewFacade setBlurRadius(float radius) {
-        this.blurRadius = radius;
+        if (this.blurRadius != radius) {
+            this.blurRadius = radius;
+            // Same snapshot has to be blurred again with the new radius
+            hasSignatures = false;
+            updateScheduler.requestUpdate();
+            if (staticBackground != null) {
+                staticBackground.release(blurView);
+                staticBackground = StaticBackgroundBlur.acquire(rootView, blurView, scaleFactor, radius);
+            }
+        }
         return this;
     }
 
@@ -223,24 +1549,91 @@ public final class PreDrawBlurController implements BlurController {
     @Override
     public BlurViewFacade setBlurEnabled(boolean enabled) {
         this.blurEnabled = enabled;
+        hasSignatures = false;
+        updateScheduler.requestUpdate();
         setBlurAutoUpdate(enabled);
         blurView.invalidate();
         return this;
     }
 
     public BlurViewFacade setBlurAutoUpdate(final boolean enabled) {
-        rootView.getViewTreeObserver().removeOnPreDrawListener(drawListener);
-        blurView.getViewTreeObserver().removeOnPreDrawListener(drawListener);
+        this.suspended = false;
+        removeDrawListeners();
+        removeRequestedUpdateListener();
         if (enabled) {
-            rootView.getViewTreeObserver().addOnPreDrawListener(drawListener);
-            // Track changes in the blurView window too, for example if it's in a bottom sheet dialog
-            if (rootView.getWindowId() != blurView.getWindowId()) {
-                blurView.getViewTreeObserver().addOnPreDrawListener(drawListener);
-            }
+            addDrawListeners();
+        } else if (updateRequested) {
+            blurView.getViewTreeObserver().addOnPreDrawListener(requestedUpdateListener);
         }
         return this;
     }
 
+    /**
+     * Requests a blur update on the next frame. Any number of requests within a frame result in a single update.
+     *
+     * @see BlurStats#getCoalescedUpdateRequests()
+     */
+    public void requestUpdate() {
+        if (updateRequested) {
+            stats.recordCoalescedUpdateRequest();
+            return;
+        }
+        updateRequested = true;
+        updateScheduler.requestUpdate();
+        // A suspended BlurView catches up once it's shown
+        if (!drawListenersAttached && !suspended) {
+            // The BlurView window is traversed after the invalidate below, even if the root View is in another one
+            removeRequestedUpdateListener();
+            blurView.getViewTreeObserver().addOnPreDrawListener(requestedUpdateListener);
+        }
+        blurView.invalidate();
+    }
+
+    private void removeRequestedUpdateListener() {
+        blurView.getViewTreeObserver().removeOnPreDrawListener(requestedUpdateListener);
+    }
+
+    private void addDrawListeners() {
+        drawListenersAttached = true;
+        rootView.getViewTreeObserver().addOnPreDrawListener(drawListener);
+        // Track changes in the blurView window too, for example if it's in a bottom sheet dialog
+        if (rootView.getWindowId() != blurView.getWindowId()) {
+            blurView.getViewTreeObserver().addOnPreDrawListener(drawListener);
+        }
+    }
+
+    private void removeDrawListeners() {
+        drawListenersAttached = false;
+        rootView.getViewTreeObserver().removeOnPreDrawListener(drawListener);
+        blurView.getViewTreeObserver().removeOnPreDrawListener(drawListener);
+    }
+
+    private void suspend() {
+        suspended = true;
+        removeDrawListeners();
+    }
+
+    /**
+     * Resumes the auto update suspended while the BlurView was hidden, with a single catch-up update.
+     * Called by the BlurView when its own, its parents' or its window visibility changes.
+     */
+    void onVisibilityChanged() {
+        if (blurView.getWindowVisibility() != View.VISIBLE) {
+            // Stopped, or otherwise in the background
+            hibernate();
+            return;
+        }
+        // Visible again before the running job finished
+        hibernatePending = false;
+        if (!suspended || !BlurVisibility.isShown(blurView)) {
+            return;
+        }
+        suspended = false;
+        addDrawListeners();
+        updateScheduler.requestUpdate();
+        blurView.invalidate();
+    }
+
     @Override
     public BlurViewFacade setOverlayColor(int overlayColor) {
         if (this.overlayColor != overlayColor) {
@@ -271,6 +1664,6 @@ public final class PreDrawBlurController implements BlurController {
      */
     @Nullable
     public Bitmap getInternalBitmap() {
-        return initialized ? internalBitmap : null;
+        return initialized ? blurredBitmap : null;
     }
 }
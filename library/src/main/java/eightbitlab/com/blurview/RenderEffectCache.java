@@ -0,0 +1,99 @@
+package eightbitlab.com.blurview;
+
+import android.content.Context;
+import android.graphics.BlendMode;
+import android.graphics.RenderEffect;
+import android.graphics.Shader;
+import android.os.Build;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Process-wide cache of blur RenderEffects, so they aren't allocated on every frame
+ * and BlurViews with the same parameters share them.
+ * <p>
+ * Main thread only.
+ */
+@RequiresApi(api = Build.VERSION_CODES.S)
+final class RenderEffectCache {
+
+    // Radius differences below 1/4 px aren't visible, but an animated radius would fill the cache otherwise
+    private static final int RADIUS_STEPS_PER_PX = 4;
+    private static final int MAX_SIZE = 32;
+
+    // Created on the first use, so the keys can be computed without the caches
+    @Nullable
+    private static LruCache<Long, RenderEffect> blurEffects;
+    @Nullable
+    private static LruCache<Long, RenderEffect> fusedEffects;
+
+    private RenderEffectCache() {
+    }
+
+    /**
+     * @return key identifying the effect, equal for radii that produce the same effect
+     */
+    static long blurKey(float radius, @NonNull Shader.TileMode tileMode) {
+        long quantizedRadius = Math.round(radius * RADIUS_STEPS_PER_PX);
+        return quantizedRadius << 8 | tileMode.ordinal();
+    }
+
+    /**
+     * The overlay color is not a part of the key, it's drawn separately,
+     * so animating it doesn't create a new effect on every frame.
+     *
+     * @param blurKey key from {@link #blurKey(float, Shader.TileMode)}
+     * @return key identifying the fused effect
+     */
+    static long fusedKey(long blurKey, boolean applyNoise) {
+        return blurKey << 1 | (applyNoise ? 1 : 0);
+    }
+
+    /**
+     * @param blurKey key from {@link #blurKey(float, Shader.TileMode)}
+     * @return the quantized radius the effect is created with
+     */
+    static float blurRadius(long blurKey) {
+        return (float) (blurKey >> 8) / RADIUS_STEPS_PER_PX;
+    }
+
+    /**
+     * The noise is anchored to the node the effect is set on, so the node has to move together with the BlurView.
+     *
+     * @return the blur, followed by the noise, in a single effect
+     */
+    @NonNull
+    static RenderEffect getFusedEffect(long key, @NonNull Shader.TileMode tileMode, @NonNull Context context) {
+        if (fusedEffects == null) {
+            fusedEffects = new LruCache<>(MAX_SIZE);
+        }
+        RenderEffect effect = fusedEffects.get(key);
+        if (effect == null) {
+            effect = getBlurEffect(key >>> 1, tileMode);
+            if ((key & 1) != 0) {
+                // Same as Noise.apply drawing over the blurred content
+                RenderEffect noise = RenderEffect.createShaderEffect(Noise.getShader(context));
+                effect = RenderEffect.createBlendModeEffect(effect, noise, BlendMode.SRC_ATOP);
+            }
+            fusedEffects.put(key, effect);
+        }
+        return effect;
+    }
+
+    @NonNull
+    static RenderEffect getBlurEffect(long key, @NonNull Shader.TileMode tileMode) {
+        if (blurEffects == null) {
+            blurEffects = new LruCache<>(MAX_SIZE);
+        }
+        RenderEffect effect = blurEffects.get(key);
+        if (effect == null) {
+            float radius = blurRadius(key);
+            effect = RenderEffect.createBlurEffect(radius, radius, tileMode);
+            blurEffects.put(key, effect);
+        }
+        return effect;
+    }
+}
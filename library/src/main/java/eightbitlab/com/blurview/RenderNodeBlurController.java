@@ -4,12 +4,12 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.RecordingCanvas;
-import android.graphics.RenderEffect;
 import android.graphics.RenderNode;
 import android.graphics.Shader;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.util.Log;
+import android.view.View;
 import android.view.ViewTreeObserver;
 
 import androidx.annotation.NonNull;
@@ -26,23 +26,49 @@ public class RenderNodeBlurController implements BlurController {
     private final BlurView blurView;
     private final BlurTarget target;
     private final RenderNode blurNode = new RenderNode("BlurView node");
+    // Target content offset to the BlurView position. The offset is a node property,
+    // so moving the BlurView doesn't require recording anything
+    private final RenderNode contentNode = new RenderNode("BlurView content node");
     private final float scaleFactor;
     private final boolean applyNoise;
+    private final BlurStats stats = new BlurStats();
 
     private Drawable frameClearDrawable;
     private int overlayColor;
     private float blurRadius = 1f;
     private boolean enabled = true;
+    private long appliedEffectKey = -1;
+    // Extra node area around the BlurView
+    private int marginX;
+    private int marginY;
+    // Set when the recorded content no longer matches the inputs
+    private boolean contentChanged = true;
+    @Nullable
+    private SharedBlurNode sharedNode;
+    // Whether the target records its children for this controller
+    private boolean consumingTarget;
+    // The window can stay visible after the BlurView is removed from it, so visibility alone doesn't tell
+    private boolean attached;
+    private boolean destroyed;
 
     // Potentially cached stuff from the slow software path
     @Nullable
     private Bitmap cachedBitmap;
     @Nullable
-    private RenderScriptBlur fallbackBlur;
+    private Canvas softwareCanvas;
+    @Nullable
+    private BoxBlur fallbackBlur;
+    // The software path sizes, recomputed only when the BlurView size changes
+    @Nullable
+    private Size originalSize;
+    @Nullable
+    private Size scaledSize;
 
     // This tracks BlurView location in scrollable containers, during animations, etc.
     private final ViewTreeObserver.OnPreDrawListener drawListener = () -> {
         saveOnScreenLocation();
+        updateSharedNodePosition();
+        // Always, the blurred content would slide out of alignment otherwise
         updateRenderNodeProperties();
         return true;
     };
@@ -55,6 +81,9 @@ public class RenderNodeBlurController implements BlurController {
         this.applyNoise = applyNoise;
         blurView.setWillNotDraw(false);
         blurView.getViewTreeObserver().addOnPreDrawListener(drawListener);
+        attached = blurView.isAttachedToWindow();
+        updateTargetConsumer();
+        BlurMemoryGovernor.register(memoryConsumer, blurView.getContext());
     }
 
     @Override
@@ -81,58 +110,172 @@ public class RenderNodeBlurController implements BlurController {
     // https://cs.android.com/android/platform/superproject/main/+/main:external/skia/src/core/SkImageFilterTypes.cpp;drc=61197364367c9e404c7da6900658f1b16c42d0da;l=2103
     // https://cs.android.com/android/platform/superproject/main/+/main:frameworks/base/libs/hwui/jni/RenderEffect.cpp;l=39;drc=61197364367c9e404c7da6900658f1b16c42d0da?q=nativeCreateBlurEffect&ss=android%2Fplatform%2Fsuperproject%2Fmain
     private void hardwarePath(Canvas canvas) {
-        // TODO would be good to keep it the size of the BlurView instead of the target, but then the animation
-        //  like translation and rotation would go out of bounds. Not sure if there's a good fix for this
-        blurNode.setPosition(0, 0, target.getWidth(), target.getHeight());
+        if (!consumingTarget) {
+            // Missed a visibility change, the target content is recorded starting from the next frame
+            updateTargetConsumer();
+        }
+        if (sharedNode == null && consumingTarget) {
+            // Left while hibernating
+            joinSharedNode();
+        }
+        updateSharedNodePosition();
+        if (sharedNode != null && sharedNode.isWorthSharing()) {
+            canvas.save();
+            canvas.clipRect(0, 0, blurView.getWidth(), blurView.getHeight());
+            sharedNode.draw(canvas, getLeft(), getTop());
+            canvas.restore();
+            // The shared node spans several BlurViews, the noise has to be anchored to this one
+            if (applyNoise) {
+                Noise.apply(canvas, blurView.getContext(), blurView.getWidth(), blurView.getHeight());
+            }
+            drawOverlayColor(canvas);
+            stats.setSharedNodeActive(true);
+            stats.setFusedEffectsActive(false);
+            return;
+        }
+        stats.setSharedNodeActive(false);
+        // Only the noise goes into the node's effect, the overlay color is a separate fill
+        stats.setFusedEffectsActive(applyNoise);
+
+        // The node only covers the BlurView and the margin needed for its transformations and the blur,
+        // so the GPU doesn't blur the whole target
+        updateMargins();
+        blurNode.setPosition(0, 0, blurView.getWidth() + 2 * marginX, blurView.getHeight() + 2 * marginY);
+        if (contentNode.setPosition(0, 0, target.getWidth(), target.getHeight())) {
+            contentChanged = true;
+        }
         updateRenderNodeProperties();
 
-        drawSnapshot();
+        recordSnapshotIfNeeded();
 
-        // Draw on the system canvas
+        // Draw on the system canvas.
+        // Noise is part of the node's RenderEffect, composited in the same pass as the blur
         canvas.drawRenderNode(blurNode);
-        if (applyNoise) {
-            Noise.apply(canvas, blurView.getContext(), blurView.getWidth(), blurView.getHeight());
-        }
+        drawOverlayColor(canvas);
+    }
+
+    /**
+     * A plain fill rather than a part of the effect, so an animated overlay color doesn't create effects on every frame
+     */
+    private void drawOverlayColor(@NonNull Canvas canvas) {
         if (overlayColor != Color.TRANSPARENT) {
             canvas.drawColor(overlayColor);
         }
     }
 
     private void updateRenderNodeProperties() {
-        float layoutTranslationX = -getLeft();
-        float layoutTranslationY = -getTop();
+        contentNode.setTranslationX(marginX - getLeft());
+        contentNode.setTranslationY(marginY - getTop());
 
         // Pivot point for the rotation and scale (in case it's applied)
-        blurNode.setPivotX(blurView.getWidth() / 2f - layoutTranslationX);
-        blurNode.setPivotY(blurView.getHeight() / 2f - layoutTranslationY);
-        blurNode.setTranslationX(layoutTranslationX);
-        blurNode.setTranslationY(layoutTranslationY);
+        blurNode.setPivotX(marginX + blurView.getWidth() / 2f);
+        blurNode.setPivotY(marginY + blurView.getHeight() / 2f);
+        blurNode.setTranslationX(-marginX);
+        blurNode.setTranslationY(-marginY);
     }
 
-    private void drawSnapshot() {
-        RecordingCanvas recordingCanvas = blurNode.beginRecording();
-        if (frameClearDrawable != null) {
-            frameClearDrawable.draw(recordingCanvas);
+    /**
+     * The margin covers the content the rotated or scaled BlurView shows beyond its own bounds,
+     * and the content the blur reads beyond the visible edges.
+     * Translation is already a part of the BlurView position.
+     */
+    private void updateMargins() {
+        int width = blurView.getWidth();
+        int height = blurView.getHeight();
+        double rotation = Math.toRadians(blurView.getRotation());
+        double cos = Math.abs(Math.cos(rotation));
+        double sin = Math.abs(Math.sin(rotation));
+        // Bounding box of the BlurView rotated and scaled back, same as the node does
+        double halfWidth = Math.abs(blurView.getScaleX()) * (width * cos + height * sin) / 2;
+        double halfHeight = Math.abs(blurView.getScaleY()) * (width * sin + height * cos) / 2;
+        // Gaussian kernel reaches about 2 radii further
+        int blurMargin = (int) Math.ceil(2 * blurRadius * scaleFactor);
+        marginX = Math.max(0, (int) Math.ceil(halfWidth - width / 2f)) + blurMargin;
+        marginY = Math.max(0, (int) Math.ceil(halfHeight - height / 2f)) + blurMargin;
+    }
+
+    /**
+     * The target node is retained and updated in place by the framework, so the recordings referencing it
+     * only change with the frame clear drawable or the target size. Position, margin and transformation changes
+     * are node properties.
+     */
+    private void recordSnapshotIfNeeded() {
+        if (contentChanged || !contentNode.hasDisplayList()) {
+            RecordingCanvas contentCanvas = contentNode.beginRecording();
+            if (frameClearDrawable != null) {
+                frameClearDrawable.draw(contentCanvas);
+            }
+            contentCanvas.drawRenderNode(target.renderNode);
+            contentNode.endRecording();
+            contentChanged = false;
+            stats.recordSnapshotCacheMiss();
+        } else {
+            stats.recordSnapshotCacheHit();
+        }
+        if (!blurNode.hasDisplayList()) {
+            RecordingCanvas recordingCanvas = blurNode.beginRecording();
+            recordingCanvas.drawRenderNode(contentNode);
+            blurNode.endRecording();
         }
-        recordingCanvas.drawRenderNode(target.renderNode);
         // Looks like the order of this doesn't matter
         applyBlur();
-        blurNode.endRecording();
     }
 
+    private void joinSharedNode() {
+        float realBlurRadius = blurRadius * scaleFactor;
+        sharedNode = SharedBlurNode.acquire(target, blurView, getBlurKey(), frameClearDrawable, realBlurRadius);
+    }
+
+    /**
+     * Moves the BlurView to the shared node matching the current settings, if they have changed
+     */
+    private void updateSharedNode() {
+        if (sharedNode != null) {
+            float realBlurRadius = blurRadius * scaleFactor;
+            sharedNode = sharedNode.update(blurView, getBlurKey(), frameClearDrawable, realBlurRadius);
+        }
+    }
+
+    private void leaveSharedNode() {
+        if (sharedNode != null) {
+            sharedNode.release(blurView);
+            sharedNode = null;
+        }
+    }
+
+    private void updateSharedNodePosition() {
+        if (sharedNode != null) {
+            sharedNode.setPosition(blurView, getLeft(), getTop());
+        }
+    }
+
+    // Allocation-free once the bitmap and the blur buffers fit the BlurView size
     private void softwarePath(Canvas canvas) {
-        SizeScaler sizeScaler = new SizeScaler(scaleFactor);
-        Size original = new Size(blurView.getWidth(), blurView.getHeight());
-        Size scaled = sizeScaler.scale(original);
+        Size original = originalSize;
+        Size scaled = scaledSize;
+        if (original == null || original.width != blurView.getWidth() || original.height != blurView.getHeight()) {
+            original = new Size(blurView.getWidth(), blurView.getHeight());
+            // The CPU blur doesn't need the RenderScript stride alignment
+            scaled = new SizeScaler(scaleFactor, true).scale(original);
+            originalSize = original;
+            scaledSize = scaled;
+        }
         if (cachedBitmap == null || cachedBitmap.getWidth() != scaled.width || cachedBitmap.getHeight() != scaled.height) {
-            cachedBitmap = Bitmap.createBitmap(scaled.width, scaled.height, Bitmap.Config.ARGB_8888);
+            BlurBitmapPool.release(cachedBitmap);
+            cachedBitmap = BlurBitmapPool.acquire(scaled.width, scaled.height, Bitmap.Config.ARGB_8888);
+            if (softwareCanvas == null) {
+                softwareCanvas = new Canvas(cachedBitmap);
+            } else {
+                softwareCanvas.setBitmap(cachedBitmap);
+            }
+            BlurMemoryGovernor.enforceBudget();
         }
-        Canvas softwareCanvas = new Canvas(cachedBitmap);
+        cachedBitmap.eraseColor(Color.TRANSPARENT);
 
         softwareCanvas.save();
         setupCanvasMatrix(softwareCanvas, original, scaled);
         if (frameClearDrawable != null) {
-            frameClearDrawable.draw(canvas);
+            frameClearDrawable.draw(softwareCanvas);
         }
         try {
             target.draw(softwareCanvas);
@@ -143,7 +286,7 @@ public class RenderNodeBlurController implements BlurController {
         softwareCanvas.restore();
 
         if (fallbackBlur == null) {
-            fallbackBlur = new RenderScriptBlur(blurView.getContext());
+            fallbackBlur = new BoxBlur();
         }
         fallbackBlur.blur(cachedBitmap, blurRadius);
         canvas.save();
@@ -188,16 +331,32 @@ public class RenderNodeBlurController implements BlurController {
 
     @Override
     public void destroy() {
+        destroyed = true;
+        updateTargetConsumer();
+        leaveSharedNode();
         blurNode.discardDisplayList();
+        contentNode.discardDisplayList();
+        contentChanged = true;
         if (fallbackBlur != null) {
             fallbackBlur.destroy();
             fallbackBlur = null;
         }
+        BlurBitmapPool.release(cachedBitmap);
+        cachedBitmap = null;
+        softwareCanvas = null;
+        BlurMemoryGovernor.unregister(memoryConsumer);
+    }
+
+    @NonNull
+    @Override
+    public BlurStats getStats() {
+        return stats;
     }
 
     @Override
     public BlurViewFacade setBlurEnabled(boolean enabled) {
         this.enabled = enabled;
+        updateTargetConsumer();
         blurView.invalidate();
         return this;
     }
@@ -211,9 +370,19 @@ public class RenderNodeBlurController implements BlurController {
         return this;
     }
 
+    @Override
+    public BlurViewFacade setUpdatePolicy(@NonNull BlurUpdatePolicy policy) {
+        // No-op. The node references the live target content, which the RenderThread blurs whenever it changes,
+        // there's no snapshot to skip. Tracking the position is cheap and has to happen on every frame.
+        return this;
+    }
+
     @Override
     public BlurViewFacade setFrameClearDrawable(@Nullable Drawable frameClearDrawable) {
         this.frameClearDrawable = frameClearDrawable;
+        contentChanged = true;
+        updateSharedNode();
+        blurView.invalidate();
         return this;
     }
 
@@ -221,20 +390,37 @@ public class RenderNodeBlurController implements BlurController {
     public BlurViewFacade setBlurRadius(float radius) {
         this.blurRadius = radius;
         applyBlur();
+        updateSharedNode();
+        // The margin depends on the radius
+        blurView.invalidate();
         return this;
     }
 
     private void applyBlur() {
+        long key = getEffectKey();
+        // The effect stays on the node across recordings
+        if (key == appliedEffectKey) {
+            return;
+        }
+        appliedEffectKey = key;
+        blurNode.setRenderEffect(RenderEffectCache.getFusedEffect(key, Shader.TileMode.CLAMP, blurView.getContext()));
+    }
+
+    private long getBlurKey() {
         // scaleFactor is only used to increase the blur radius
         // because RenderEffect already scales down the snapshot when needed.
         float realBlurRadius = blurRadius * scaleFactor;
-        RenderEffect blur = RenderEffect.createBlurEffect(realBlurRadius, realBlurRadius, Shader.TileMode.CLAMP);
-        blurNode.setRenderEffect(blur);
+        return RenderEffectCache.blurKey(realBlurRadius, Shader.TileMode.CLAMP);
+    }
+
+    private long getEffectKey() {
+        return RenderEffectCache.fusedKey(getBlurKey(), applyNoise);
     }
 
     @Override
     public BlurViewFacade setOverlayColor(int overlayColor) {
         if (this.overlayColor != overlayColor) {
+            // Drawn over the node, so animating it doesn't touch the effects
             this.overlayColor = overlayColor;
             blurView.invalidate();
         }
@@ -258,16 +444,118 @@ public class RenderNodeBlurController implements BlurController {
 
     void updateRotation(float rotation) {
         blurNode.setRotationZ(-rotation);
+        invalidateIfMarginsChanged();
     }
 
     public void updateScaleX(float scaleX) {
         blurNode.setScaleX(1 / scaleX);
+        invalidateIfMarginsChanged();
     }
 
     public void updateScaleY(float scaleY) {
         blurNode.setScaleY(1 / scaleY);
+        invalidateIfMarginsChanged();
+    }
+
+    /**
+     * Transformation changes don't redraw the BlurView, but the node has to be re-recorded if it no longer covers
+     * everything the transformed BlurView shows
+     */
+    private void invalidateIfMarginsChanged() {
+        int oldMarginX = marginX;
+        int oldMarginY = marginY;
+        updateMargins();
+        if (marginX != oldMarginX || marginY != oldMarginY) {
+            blurView.invalidate();
+        }
+    }
+
+    /**
+     * Called by the BlurView when its own, its parents' or its window visibility changes
+     */
+    void onVisibilityChanged() {
+        updateTargetConsumer();
+        if (blurView.getWindowVisibility() != View.VISIBLE) {
+            // Stopped, or otherwise in the background
+            hibernate();
+        }
+    }
+
+    /**
+     * Called by the BlurView when it's attached to or detached from its window.
+     * A detached BlurView stops being a consumer of the target and leaves its shared node.
+     */
+    void onAttachedToWindowChanged(boolean attached) {
+        this.attached = attached;
+        updateTargetConsumer();
     }
 
+    /**
+     * Drops the display lists and the software fallback memory, they're recorded again on the next draw.
+     * Unlike the snapshot bitmaps below API 31, re-recording is synchronous, so no placeholder is needed.
+     */
+    private void hibernate() {
+        leaveSharedNode();
+        blurNode.discardDisplayList();
+        contentNode.discardDisplayList();
+        contentChanged = true;
+        if (fallbackBlur != null) {
+            fallbackBlur.trimMemory();
+        }
+        BlurBitmapPool.release(cachedBitmap);
+        cachedBitmap = null;
+    }
+
+    /**
+     * The target only records its children into the RenderNode while some enabled and shown BlurView draws it
+     */
+    private void updateTargetConsumer() {
+        boolean consuming = enabled && !destroyed && attached && BlurVisibility.isShown(blurView);
+        if (consuming == consumingTarget) {
+            return;
+        }
+        consumingTarget = consuming;
+        if (consuming) {
+            target.addRenderNodeConsumer(this);
+            joinSharedNode();
+        } else {
+            target.removeRenderNodeConsumer(this);
+            // Hidden, detached or destroyed BlurViews don't keep the shared node alive
+            leaveSharedNode();
+        }
+    }
+
+    /**
+     * @return bytes held by the software rendering fallback, the hardware path memory is managed by the system
+     */
+    long getRetainedBytes() {
+        return memoryConsumer.getRetainedBytes();
+    }
+
+    private final BlurMemoryGovernor.Consumer memoryConsumer = new BlurMemoryGovernor.Consumer() {
+        @Override
+        public long getRetainedBytes() {
+            return cachedBitmap != null ? cachedBitmap.getAllocationByteCount() : 0;
+        }
+
+        @Override
+        public void trimCaches() {
+            // The software path is rare, the bitmap is acquired again on the next software draw
+            BlurBitmapPool.release(cachedBitmap);
+            cachedBitmap = null;
+        }
+
+        @Override
+        public void reduceResolution() {
+            // Nothing to downgrade, the hardware path doesn't keep any bitmaps
+        }
+
+        @Override
+        public void hibernate() {
+            RenderNodeBlurController.this.hibernate();
+        }
+    };
+
     private void saveOnScreenLocation() {
         target.getLocationOnScreen(targetLocation);
         blurView.getLocationOnScreen(blurViewLocation);
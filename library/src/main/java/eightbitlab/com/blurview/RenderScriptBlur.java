@@ -24,8 +24,10 @@ import androidx.annotation.NonNull;
 @Deprecated
 public class RenderScriptBlur implements BlurAlgorithm {
     private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
-    private final RenderScript renderScript;
-    private final ScriptIntrinsicBlur blurScript;
+    private final Context context;
+    // Released by trimMemory() and lazily created again
+    private RenderScript renderScript;
+    private ScriptIntrinsicBlur blurScript;
     private Allocation outAllocation;
 
     private int lastBitmapWidth = -1;
@@ -35,6 +37,11 @@ public class RenderScriptBlur implements BlurAlgorithm {
      * @param context Context to create the {@link RenderScript}
      */
     public RenderScriptBlur(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+        createContext();
+    }
+
+    private void createContext() {
         renderScript = RenderScript.create(context);
         blurScript = ScriptIntrinsicBlur.create(renderScript, Element.U8_4(renderScript));
     }
@@ -51,6 +58,9 @@ public class RenderScriptBlur implements BlurAlgorithm {
     @Override
     public Bitmap blur(@NonNull Bitmap bitmap, float blurRadius) {
         try {
+            if (renderScript == null) {
+                createContext();
+            }
             //Allocation will use the same backing array of pixels as bitmap if created with USAGE_SHARED flag
             Allocation inAllocation = Allocation.createFromBitmap(renderScript, bitmap);
 
@@ -80,11 +90,29 @@ public class RenderScriptBlur implements BlurAlgorithm {
 
     @Override
     public final void destroy() {
-        blurScript.destroy();
-        renderScript.destroy();
+        trimMemory();
+    }
+
+    /**
+     * Releases the RenderScript context and allocations, for example while the BlurView is in the background.
+     * They're created again on the next {@link #blur(Bitmap, float)}.
+     * Must not be called during the blur.
+     */
+    public final void trimMemory() {
+        if (blurScript != null) {
+            blurScript.destroy();
+            blurScript = null;
+        }
+        if (renderScript != null) {
+            renderScript.destroy();
+            renderScript = null;
+        }
         if (outAllocation != null) {
             outAllocation.destroy();
+            outAllocation = null;
         }
+        lastBitmapWidth = -1;
+        lastBitmapHeight = -1;
     }
 
     @Override
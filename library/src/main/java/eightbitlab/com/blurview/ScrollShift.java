@@ -0,0 +1,87 @@
+package eightbitlab.com.blurview;
+
+/**
+ * Splits the scroll of the content under a BlurView into a shift by whole snapshot pixels,
+ * and the remainder that's carried over until it adds up to a pixel.
+ * Also tells the strip of the snapshot the shift exposes, which has to be captured and blurred again.
+ * <p>
+ * Reused from frame to frame, so computing it doesn't allocate.
+ */
+final class ScrollShift {
+
+    /**
+     * Less than a snapshot pixel, not noticeable once blurred
+     */
+    static final int NONE = 0;
+    /**
+     * The content has to be shifted by {@link #dx}, {@link #dy} and the exposed strip updated
+     */
+    static final int SHIFT = 1;
+    /**
+     * Scrolled by the whole snapshot size or more, nothing can be reused
+     */
+    static final int FULL = 2;
+
+    // Content shift in snapshot pixels, opposite to the scroll
+    int dx;
+    int dy;
+    // Scroll in BlurView pixels that's not part of the shift
+    float remainderX;
+    float remainderY;
+    // Bounds of the exposed strip in snapshot pixels. Both strips are covered if the scroll is diagonal
+    int exposedLeft;
+    int exposedTop;
+    int exposedRight;
+    int exposedBottom;
+
+    /**
+     * @param scrollX  pending scroll in BlurView pixels
+     * @param scrollY  pending scroll in BlurView pixels
+     * @param scaleX   BlurView pixels per snapshot pixel
+     * @param scaleY   BlurView pixels per snapshot pixel
+     * @param width    snapshot width
+     * @param height   snapshot height
+     * @return {@link #NONE}, {@link #SHIFT} or {@link #FULL}
+     */
+    int compute(float scrollX, float scrollY, float scaleX, float scaleY, int width, int height) {
+        int shiftX = (int) (scrollX / scaleX);
+        int shiftY = (int) (scrollY / scaleY);
+        dx = -shiftX;
+        dy = -shiftY;
+        remainderX = scrollX - shiftX * scaleX;
+        remainderY = scrollY - shiftY * scaleY;
+        if (shiftX == 0 && shiftY == 0) {
+            setExposed(0, 0, 0, 0);
+            return NONE;
+        }
+        if (Math.abs(shiftX) >= width || Math.abs(shiftY) >= height) {
+            setExposed(0, 0, width, height);
+            return FULL;
+        }
+        int left = width;
+        int top = height;
+        int right = 0;
+        int bottom = 0;
+        if (shiftX != 0) {
+            left = shiftX > 0 ? width - shiftX : 0;
+            right = shiftX > 0 ? width : -shiftX;
+            top = 0;
+            bottom = height;
+        }
+        if (shiftY != 0) {
+            left = 0;
+            right = width;
+            top = Math.min(top, shiftY > 0 ? height - shiftY : 0);
+            bottom = Math.max(bottom, shiftY > 0 ? height : -shiftY);
+        }
+        setExposed(left, top, right, bottom);
+        return SHIFT;
+    }
+
+    private void setExposed(int left, int top, int right, int bottom) {
+        exposedLeft = left;
+        exposedTop = top;
+        exposedRight = right;
+        exposedBottom = bottom;
+    }
+}
@@ -0,0 +1,236 @@
+package eightbitlab.com.blurview;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.Rect;
+import android.graphics.RenderNode;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blurred RenderNode shared by the BlurViews over the same BlurTarget with the same blur radius and frame clear drawable.
+ * <p>
+ * The node covers the union of the BlurViews, so the GPU blurs it once per frame
+ * and each BlurView draws its own part with a translation and a clip, followed by its own noise and overlay color.
+ * Sharing only pays off while the BlurViews are close to each other, see {@link #isWorthSharing()}.
+ * <p>
+ * The instances are kept by their BlurTarget and only hold the BlurViews currently shown,
+ * the nodes themselves are allocated once a second BlurView joins.
+ * <p>
+ * Main thread only.
+ */
+@RequiresApi(api = Build.VERSION_CODES.S)
+final class SharedBlurNode {
+
+    // The union may be at most that much larger than the BlurViews themselves,
+    // otherwise blurring the area between them costs more than separate blurs
+    private static final float MAX_UNION_AREA_RATIO = 1.5f;
+
+    private final BlurTarget target;
+    private long blurKey;
+    @Nullable
+    private Drawable frameClearDrawable;
+    // Content the blur reads beyond the union edges
+    private int margin;
+    // Only allocated while more than one BlurView uses the node
+    @Nullable
+    private RenderNode blurNode;
+    @Nullable
+    private RenderNode contentNode;
+    private long appliedBlurKey = -1;
+    private final List<View> blurViews = new ArrayList<>();
+    // Positions of the BlurViews relative to the target, same order as blurViews
+    private final List<Rect> bounds = new ArrayList<>();
+    private final Rect union = new Rect();
+    private boolean contentChanged = true;
+
+    private SharedBlurNode(@NonNull BlurTarget target, long blurKey, @Nullable Drawable frameClearDrawable,
+                           float realBlurRadius) {
+        this.target = target;
+        this.blurKey = blurKey;
+        this.frameClearDrawable = frameClearDrawable;
+        this.margin = (int) Math.ceil(2 * realBlurRadius);
+    }
+
+    /**
+     * @return the shared instance for the given parameters, must be released via {@link #release(View)}.
+     * The instances are kept by the target, so they don't outlive its View hierarchy.
+     */
+    @NonNull
+    static SharedBlurNode acquire(@NonNull BlurTarget target, @NonNull View blurView, long blurKey,
+                                  @Nullable Drawable frameClearDrawable, float realBlurRadius) {
+        SharedBlurNode node = find(target, blurKey, frameClearDrawable);
+        if (node == null) {
+            node = new SharedBlurNode(target, blurKey, frameClearDrawable, realBlurRadius);
+            target.sharedBlurNodes.add(node);
+        }
+        node.blurViews.add(blurView);
+        node.bounds.add(new Rect());
+        return node;
+    }
+
+    @Nullable
+    private static SharedBlurNode find(@NonNull BlurTarget target, long blurKey, @Nullable Drawable frameClearDrawable) {
+        for (SharedBlurNode node : target.sharedBlurNodes) {
+            if (node.blurKey == blurKey && node.frameClearDrawable == frameClearDrawable) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves the BlurView to the instance matching its new parameters.
+     * If the BlurView is the only one using this instance and no other one matches, this instance is updated in place,
+     * so animating the parameters of a single BlurView doesn't allocate anything.
+     *
+     * @return the instance the BlurView uses from now on
+     */
+    @NonNull
+    SharedBlurNode update(@NonNull View blurView, long blurKey, @Nullable Drawable frameClearDrawable, float realBlurRadius) {
+        if (this.blurKey == blurKey && this.frameClearDrawable == frameClearDrawable) {
+            return this;
+        }
+        if (blurViews.size() == 1 && blurViews.get(0) == blurView && find(target, blurKey, frameClearDrawable) == null) {
+            this.blurKey = blurKey;
+            this.frameClearDrawable = frameClearDrawable;
+            this.margin = (int) Math.ceil(2 * realBlurRadius);
+            contentChanged = true;
+            return this;
+        }
+        release(blurView);
+        return acquire(target, blurView, blurKey, frameClearDrawable, realBlurRadius);
+    }
+
+    void release(@NonNull View blurView) {
+        int index = blurViews.indexOf(blurView);
+        if (index >= 0) {
+            blurViews.remove(index);
+            bounds.remove(index);
+        }
+        if (blurViews.size() < 2) {
+            discardNodes();
+        }
+        if (blurViews.isEmpty()) {
+            target.sharedBlurNodes.remove(this);
+        }
+    }
+
+    private void discardNodes() {
+        if (blurNode != null) {
+            blurNode.discardDisplayList();
+            contentNode.discardDisplayList();
+            blurNode = null;
+            contentNode = null;
+        }
+    }
+
+    /**
+     * @param left BlurView position relative to the target
+     * @param top  BlurView position relative to the target
+     */
+    void setPosition(@NonNull View blurView, int left, int top) {
+        int index = blurViews.indexOf(blurView);
+        if (index < 0) {
+            return;
+        }
+        Rect rect = bounds.get(index);
+        int right = left + blurView.getWidth();
+        int bottom = top + blurView.getHeight();
+        if (rect.left == left && rect.top == top && rect.right == right && rect.bottom == bottom) {
+            return;
+        }
+        rect.set(left, top, right, bottom);
+        // The union might have changed, and the other BlurViews draw the node relative to it
+        for (View other : blurViews) {
+            if (other != blurView) {
+                other.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Also updates the union of the BlurViews, so should be called after all positions of the frame are set.
+     *
+     * @return true if the BlurViews should draw this node instead of blurring their own
+     */
+    boolean isWorthSharing() {
+        union.setEmpty();
+        long area = 0;
+        int count = 0;
+        for (int i = 0; i < blurViews.size(); i++) {
+            View blurView = blurViews.get(i);
+            if (!blurView.isAttachedToWindow()) {
+                continue;
+            }
+            // The shared node can't follow the BlurView transformations
+            if (blurView.getRotation() != 0f || blurView.getScaleX() != 1f || blurView.getScaleY() != 1f) {
+                return false;
+            }
+            Rect rect = bounds.get(i);
+            if (rect.isEmpty()) {
+                continue;
+            }
+            area += (long) rect.width() * rect.height();
+            union.union(rect);
+            count++;
+        }
+        return count > 1 && (long) union.width() * union.height() <= MAX_UNION_AREA_RATIO * area;
+    }
+
+    /**
+     * Draws the part of the shared node under the BlurView
+     *
+     * @param left BlurView position relative to the target
+     * @param top  BlurView position relative to the target
+     */
+    void draw(@NonNull Canvas canvas, int left, int top) {
+        if (blurNode == null) {
+            blurNode = new RenderNode("BlurView shared node");
+            contentNode = new RenderNode("BlurView shared content node");
+            appliedBlurKey = -1;
+            contentChanged = true;
+        }
+        updateNode();
+        canvas.save();
+        canvas.translate(union.left - margin - left, union.top - margin - top);
+        canvas.drawRenderNode(blurNode);
+        canvas.restore();
+    }
+
+    private void updateNode() {
+        if (appliedBlurKey != blurKey) {
+            appliedBlurKey = blurKey;
+            blurNode.setRenderEffect(RenderEffectCache.getBlurEffect(blurKey, Shader.TileMode.CLAMP));
+        }
+        blurNode.setPosition(0, 0, union.width() + 2 * margin, union.height() + 2 * margin);
+        if (contentNode.setPosition(0, 0, target.getWidth(), target.getHeight())) {
+            contentChanged = true;
+        }
+        contentNode.setTranslationX(margin - union.left);
+        contentNode.setTranslationY(margin - union.top);
+        if (contentChanged || !contentNode.hasDisplayList()) {
+            RecordingCanvas contentCanvas = contentNode.beginRecording();
+            if (frameClearDrawable != null) {
+                frameClearDrawable.draw(contentCanvas);
+            }
+            contentCanvas.drawRenderNode(target.renderNode);
+            contentNode.endRecording();
+            contentChanged = false;
+        }
+        if (!blurNode.hasDisplayList()) {
+            RecordingCanvas recordingCanvas = blurNode.beginRecording();
+            recordingCanvas.drawRenderNode(contentNode);
+            blurNode.endRecording();
+        }
+    }
+}
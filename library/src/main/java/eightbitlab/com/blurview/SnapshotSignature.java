@@ -0,0 +1,77 @@
+package eightbitlab.com.blurview;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Cheap content signatures of a captured snapshot, one per {@link #TILE_SIZE} square tile.
+ * Used to skip blurring when nothing has changed, and to find the changed area otherwise.
+ * <p>
+ * Only every {@code step}-th row is hashed on a frame, and the hashed rows rotate from frame to frame,
+ * so every pixel is checked within {@code step} frames. Each phase is compared with its own previous signatures.
+ */
+final class SnapshotSignature {
+
+    static final int DEFAULT_STEP = 2;
+    // In snapshot bitmap pixels
+    static final int TILE_SIZE = 16;
+
+    // 64-bit FNV-1a
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private SnapshotSignature() {
+    }
+
+    /**
+     * @return number of tiles needed to cover the given size
+     */
+    static int tileCount(int size) {
+        return (size + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Starts the signatures of the given tiles over, before their rows are hashed again
+     *
+     * @param columns number of tile columns
+     */
+    static void resetTiles(@NonNull long[] signatures, int columns,
+                           int firstColumn, int lastColumn, int firstRow, int lastRow) {
+        for (int row = firstRow; row <= lastRow; row++) {
+            Arrays.fill(signatures, row * columns + firstColumn, row * columns + lastColumn + 1, OFFSET_BASIS);
+        }
+    }
+
+    /**
+     * Adds a part of a pixel row to the signatures of the tiles it crosses
+     *
+     * @param pixels  holds the pixels starting from {@code offset}
+     * @param left    x of the first pixel
+     * @param y       row of the pixels
+     * @param columns number of tile columns
+     */
+    static void hashRow(@NonNull int[] pixels, int offset, int left, int count, int y, int columns,
+                        @NonNull long[] signatures) {
+        int tileRowStart = (y / TILE_SIZE) * columns;
+        for (int i = 0; i < count; i++) {
+            int tile = tileRowStart + (left + i) / TILE_SIZE;
+            signatures[tile] = (signatures[tile] ^ pixels[offset + i]) * PRIME;
+        }
+    }
+
+    /**
+     * Computes a signature of the given phase for every tile, tiles are ordered row by row.
+     *
+     * @param phase         hashes the rows where {@code y % step == phase}
+     * @param outSignatures must hold at least {@code tileCount(width) * tileCount(height)} values
+     */
+    static void computeTiles(@NonNull int[] pixels, int width, int height, int step, int phase,
+                             @NonNull long[] outSignatures) {
+        int columns = tileCount(width);
+        resetTiles(outSignatures, columns, 0, columns - 1, 0, tileCount(height) - 1);
+        for (int y = phase; y < height; y += step) {
+            hashRow(pixels, y * width, 0, width, y, columns, outSignatures);
+        }
+    }
+}
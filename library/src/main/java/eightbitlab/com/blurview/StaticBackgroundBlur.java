@@ -0,0 +1,238 @@
+package eightbitlab.com.blurview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * Blurred snapshot of the whole root View, shared by the BlurViews in static background mode
+ * that have the same root View, scale factor and blur radius.
+ * <p>
+ * The root View is blurred once and the result is reused until {@link #invalidate()} or a root View size change.
+ * Each BlurView draws the part under itself, so moving BlurViews don't cause any blur work.
+ * <p>
+ * Main thread only.
+ */
+final class StaticBackgroundBlur {
+
+    // The instances are only referenced weakly, so the map never reaches its own keys.
+    // They're kept alive by the controllers using them
+    private static final WeakHashMap<ViewGroup, List<WeakReference<StaticBackgroundBlur>>> shared = new WeakHashMap<>();
+
+    private final ViewGroup rootView;
+    private final float scaleFactor;
+    private final float blurRadius;
+    // Margin around the root View in snapshot pixels, filled with the edge pixels.
+    // Makes the edges clamp the same way as in a regular BlurView snapshot,
+    // and leaves something to draw for a BlurView that is partially outside of the root View.
+    private final int overscan;
+    private final List<View> blurViews = new ArrayList<>();
+
+    @Nullable
+    private Bitmap snapshot;
+    @Nullable
+    private Bitmap blurredBitmap;
+    // Reused for the edge pixels
+    private int[] edge = new int[0];
+    private int rootWidth = -1;
+    private int rootHeight = -1;
+    // https://github.com/Dimezis/BlurView/issues/128
+    private float scaleFactorW;
+    private float scaleFactorH;
+    private boolean valid;
+
+    private StaticBackgroundBlur(@NonNull ViewGroup rootView, float scaleFactor, float blurRadius) {
+        this.rootView = rootView;
+        this.scaleFactor = scaleFactor;
+        this.blurRadius = blurRadius;
+        this.overscan = (int) Math.ceil(blurRadius);
+    }
+
+    /**
+     * @return the shared instance for the given parameters, must be released via {@link #release(View)}
+     */
+    @NonNull
+    static StaticBackgroundBlur acquire(@NonNull ViewGroup rootView, @NonNull View blurView, float scaleFactor, float blurRadius) {
+        List<WeakReference<StaticBackgroundBlur>> backgrounds = shared.get(rootView);
+        if (backgrounds == null) {
+            backgrounds = new ArrayList<>();
+            shared.put(rootView, backgrounds);
+        }
+        for (Iterator<WeakReference<StaticBackgroundBlur>> iterator = backgrounds.iterator(); iterator.hasNext(); ) {
+            StaticBackgroundBlur background = iterator.next().get();
+            if (background == null) {
+                // Its BlurViews are gone without turning the static mode off
+                iterator.remove();
+            } else if (background.scaleFactor == scaleFactor && background.blurRadius == blurRadius) {
+                background.blurViews.add(blurView);
+                return background;
+            }
+        }
+        StaticBackgroundBlur background = new StaticBackgroundBlur(rootView, scaleFactor, blurRadius);
+        background.blurViews.add(blurView);
+        backgrounds.add(new WeakReference<>(background));
+        return background;
+    }
+
+    void release(@NonNull View blurView) {
+        blurViews.remove(blurView);
+        if (!blurViews.isEmpty()) {
+            return;
+        }
+        List<WeakReference<StaticBackgroundBlur>> backgrounds = shared.get(rootView);
+        if (backgrounds != null) {
+            for (Iterator<WeakReference<StaticBackgroundBlur>> iterator = backgrounds.iterator(); iterator.hasNext(); ) {
+                StaticBackgroundBlur background = iterator.next().get();
+                if (background == null || background == this) {
+                    iterator.remove();
+                }
+            }
+            if (backgrounds.isEmpty()) {
+                shared.remove(rootView);
+            }
+        }
+        BlurBitmapPool.releaseAfterNextFrame(snapshot);
+        snapshot = null;
+        blurredBitmap = null;
+    }
+
+    /**
+     * Releases the bitmaps while the UI is hidden, the next {@link #update} blurs the root View again
+     */
+    void trimMemory() {
+        BlurBitmapPool.releaseAfterNextFrame(snapshot);
+        snapshot = null;
+        blurredBitmap = null;
+        valid = false;
+    }
+
+    /**
+     * Makes the next {@link #update} blur the root View again
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Blurs the root View, if it's been invalidated or resized since the last time.
+     * All BlurViews sharing the result are invalidated to pick it up.
+     *
+     * @return true if the root View has been blurred again
+     */
+    boolean update(@NonNull BlurAlgorithm algorithm, @Nullable Drawable frameClearDrawable) {
+        int width = rootView.getWidth();
+        int height = rootView.getHeight();
+        if (valid && width == rootWidth && height == rootHeight) {
+            return false;
+        }
+        SizeScaler sizeScaler = new SizeScaler(scaleFactor, true);
+        if (sizeScaler.isZeroSized(width, height)) {
+            return false;
+        }
+        SizeScaler.Size size = sizeScaler.scale(width, height);
+        int bitmapWidth = size.width + 2 * overscan;
+        int bitmapHeight = size.height + 2 * overscan;
+        if (snapshot == null || snapshot.getWidth() != bitmapWidth || snapshot.getHeight() != bitmapHeight) {
+            BlurBitmapPool.releaseAfterNextFrame(snapshot);
+            snapshot = BlurBitmapPool.acquire(bitmapWidth, bitmapHeight, algorithm.getSupportedBitmapConfig());
+        }
+        rootWidth = width;
+        rootHeight = height;
+        scaleFactorW = (float) width / size.width;
+        scaleFactorH = (float) height / size.height;
+
+        BlurViewCanvas canvas = new BlurViewCanvas(snapshot);
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        canvas.translate(overscan, overscan);
+        canvas.scale(1 / scaleFactorW, 1 / scaleFactorH);
+        if (frameClearDrawable != null) {
+            frameClearDrawable.draw(canvas);
+        }
+        try {
+            rootView.draw(canvas);
+        } catch (Exception e) {
+            // Can potentially fail on rendering Hardware Bitmaps or something like that
+            Log.e("BlurView", "Error during static background capturing", e);
+        }
+        clampEdges(snapshot, size.width, size.height);
+        blurredBitmap = algorithm.blur(snapshot, blurRadius);
+        if (!algorithm.canModifyBitmap()) {
+            // Taken over by the algorithm
+            snapshot = null;
+        }
+        valid = true;
+        for (View blurView : blurViews) {
+            blurView.invalidate();
+        }
+        return true;
+    }
+
+    /**
+     * Fills the overscan margin with the outermost pixels of the root View
+     *
+     * @param width  root View width in snapshot pixels
+     * @param height root View height in snapshot pixels
+     */
+    private void clampEdges(@NonNull Bitmap bitmap, int width, int height) {
+        if (overscan == 0) {
+            return;
+        }
+        int bitmapWidth = bitmap.getWidth();
+        int bitmapHeight = bitmap.getHeight();
+        if (edge.length < Math.max(bitmapWidth, bitmapHeight)) {
+            edge = new int[Math.max(bitmapWidth, bitmapHeight)];
+        }
+        // Columns next to the content first, then full rows, which fills the corners too
+        copyColumn(bitmap, overscan, 0, overscan, height);
+        copyColumn(bitmap, overscan + width - 1, overscan + width, bitmapWidth, height);
+        copyRow(bitmap, overscan, 0, overscan);
+        copyRow(bitmap, overscan + height - 1, overscan + height, bitmapHeight);
+    }
+
+    private void copyColumn(@NonNull Bitmap bitmap, int column, int fromX, int toX, int height) {
+        bitmap.getPixels(edge, 0, 1, column, overscan, 1, height);
+        for (int x = fromX; x < toX; x++) {
+            bitmap.setPixels(edge, 0, 1, x, overscan, 1, height);
+        }
+    }
+
+    private void copyRow(@NonNull Bitmap bitmap, int row, int fromY, int toY) {
+        int width = bitmap.getWidth();
+        bitmap.getPixels(edge, 0, width, 0, row, width, 1);
+        for (int y = fromY; y < toY; y++) {
+            bitmap.setPixels(edge, 0, width, 0, y, width, 1);
+        }
+    }
+
+    /**
+     * Draws the part of the blurred root View under the BlurView.
+     *
+     * @param left BlurView position relative to the root View
+     * @param top  BlurView position relative to the root View
+     */
+    void draw(@NonNull Canvas canvas, @NonNull BlurAlgorithm algorithm, int left, int top) {
+        if (blurredBitmap == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(-left, -top);
+        canvas.scale(scaleFactorW, scaleFactorH);
+        canvas.translate(-overscan, -overscan);
+        algorithm.render(canvas, blurredBitmap);
+        canvas.restore();
+    }
+}
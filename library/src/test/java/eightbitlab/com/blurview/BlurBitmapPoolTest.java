@@ -0,0 +1,36 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BlurBitmapPoolTest {
+
+    @Test
+    void small_sizes_share_the_minimal_bucket() {
+        assertEquals(4096, BlurBitmapPool.bucketPixels(1));
+        assertEquals(4096, BlurBitmapPool.bucketPixels(4096));
+    }
+
+    @Test
+    void powers_of_two_are_not_rounded() {
+        assertEquals(8192, BlurBitmapPool.bucketPixels(8192));
+        assertEquals(1 << 20, BlurBitmapPool.bucketPixels(1 << 20));
+    }
+
+    @Test
+    void close_sizes_share_a_bucket() {
+        // 1280x720 downscaled by 8 with the width aligned to 64 is 192x90, vs 192x95 after a small resize
+        assertEquals(BlurBitmapPool.bucketPixels(192 * 90), BlurBitmapPool.bucketPixels(192 * 95));
+    }
+
+    @Test
+    void bucket_fits_the_size_and_wastes_at_most_a_quarter() {
+        for (long pixels = 4097; pixels < 300_000; pixels += 997) {
+            long bucket = BlurBitmapPool.bucketPixels(pixels);
+            assertTrue(bucket >= pixels, "bucket of " + pixels);
+            assertTrue(bucket <= pixels * 5 / 4 + 1, "bucket of " + pixels);
+        }
+    }
+}
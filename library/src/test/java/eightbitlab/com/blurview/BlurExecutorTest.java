@@ -0,0 +1,69 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class BlurExecutorTest {
+    private final List<String> executed = new ArrayList<>();
+
+    @Test
+    void replaced_job_runs_only_the_latest_work() {
+        BlurExecutor.Job job = new BlurExecutor.Job(this, record("first"));
+        assertTrue(job.replace(record("second")));
+        assertTrue(job.replace(record("third")));
+
+        job.run();
+        job.run();
+
+        assertEquals(List.of("third"), executed);
+    }
+
+    @Test
+    void started_job_can_not_be_replaced() {
+        BlurExecutor.Job job = new BlurExecutor.Job(this, record("first"));
+        job.run();
+
+        // The caller enqueues a new job instead
+        assertFalse(job.replace(record("second")));
+        job.run();
+        assertEquals(List.of("first"), executed);
+    }
+
+    @Test
+    void cancelled_job_never_runs() {
+        BlurExecutor.Job job = new BlurExecutor.Job(this, record("first"));
+        assertTrue(job.cancel());
+        assertFalse(job.cancel());
+        assertFalse(job.replace(record("second")));
+
+        job.run();
+        assertTrue(executed.isEmpty());
+    }
+
+    @Test
+    void started_job_can_not_be_cancelled() {
+        BlurExecutor.Job job = new BlurExecutor.Job(this, record("first"));
+        job.run();
+
+        assertFalse(job.cancel());
+        assertEquals(List.of("first"), executed);
+    }
+
+    @Test
+    void job_without_key_runs_once() {
+        BlurExecutor.Job job = new BlurExecutor.Job(null, record("first"));
+        job.run();
+        job.run();
+        assertEquals(List.of("first"), executed);
+    }
+
+    private Runnable record(String name) {
+        return () -> executed.add(name);
+    }
+}
@@ -0,0 +1,138 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BlurMemoryGovernorTest {
+    private static final long BUDGET = BlurMemoryGovernor.getBudgetBytes();
+
+    private final FakeConsumer small = new FakeConsumer(BUDGET / 4, BUDGET / 8);
+    private final FakeConsumer large = new FakeConsumer(BUDGET / 2, BUDGET / 8);
+
+    @AfterEach
+    void tearDown() {
+        BlurMemoryGovernor.unregister(small);
+        BlurMemoryGovernor.unregister(large);
+    }
+
+    @Test
+    void within_budget_nothing_is_trimmed() {
+        BlurMemoryGovernor.register(small);
+        BlurMemoryGovernor.enforceBudget();
+
+        assertFalse(small.trimmed);
+        assertFalse(small.reduced);
+    }
+
+    @Test
+    void caches_are_shed_before_resolution() {
+        large.bitmapBytes = BUDGET - BUDGET / 16;
+        BlurMemoryGovernor.register(large);
+        BlurMemoryGovernor.enforceBudget();
+
+        assertTrue(large.trimmed);
+        assertFalse(large.reduced);
+    }
+
+    @Test
+    void largest_consumer_is_downgraded_first() {
+        small.bitmapBytes = BUDGET / 2;
+        large.bitmapBytes = BUDGET / 2 + BUDGET / 8;
+        BlurMemoryGovernor.register(small);
+        BlurMemoryGovernor.register(large);
+        BlurMemoryGovernor.enforceBudget();
+
+        assertTrue(large.reduced);
+        assertFalse(small.reduced);
+        assertTrue(BlurMemoryGovernor.getTotalBytes() <= BUDGET);
+    }
+
+    @Test
+    void trim_levels() {
+        BlurMemoryGovernor.register(small);
+
+        BlurMemoryGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertTrue(small.trimmed);
+        assertFalse(small.reduced);
+        assertFalse(small.hibernated);
+
+        BlurMemoryGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertTrue(small.reduced);
+        assertFalse(small.hibernated);
+    }
+
+    @Test
+    void hidden_ui_hibernates_consumers() {
+        BlurMemoryGovernor.register(small);
+        BlurMemoryGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertTrue(small.hibernated);
+        assertFalse(small.reduced);
+        assertEquals(0, small.getRetainedBytes());
+    }
+
+    @Test
+    void unregistered_consumer_is_not_accounted() {
+        BlurMemoryGovernor.register(small);
+        long total = BlurMemoryGovernor.getTotalBytes();
+        BlurMemoryGovernor.unregister(small);
+
+        assertEquals(total - small.getRetainedBytes(), BlurMemoryGovernor.getTotalBytes());
+    }
+
+    @Test
+    void headroom_accounts_for_the_restored_resolution() {
+        small.bitmapBytes = BUDGET / 16;
+        small.cacheBytes = 0;
+        BlurMemoryGovernor.register(small);
+        // Doubling the resolution takes three times more on top
+        assertTrue(BlurMemoryGovernor.hasHeadroom(3 * small.bitmapBytes));
+
+        small.bitmapBytes = BUDGET / 6;
+        assertFalse(BlurMemoryGovernor.hasHeadroom(3 * small.bitmapBytes));
+    }
+
+    private static class FakeConsumer implements BlurMemoryGovernor.Consumer {
+        long bitmapBytes;
+        long cacheBytes;
+        boolean trimmed;
+        boolean reduced;
+        boolean hibernated;
+
+        FakeConsumer(long bitmapBytes, long cacheBytes) {
+            this.bitmapBytes = bitmapBytes;
+            this.cacheBytes = cacheBytes;
+        }
+
+        @Override
+        public long getRetainedBytes() {
+            return bitmapBytes + cacheBytes;
+        }
+
+        @Override
+        public void trimCaches() {
+            trimmed = true;
+            cacheBytes = 0;
+        }
+
+        @Override
+        public void reduceResolution() {
+            reduced = true;
+            // Half the resolution in both dimensions
+            bitmapBytes /= 4;
+        }
+
+        @Override
+        public void hibernate() {
+            hibernated = true;
+            bitmapBytes = 0;
+            cacheBytes = 0;
+        }
+    }
+}
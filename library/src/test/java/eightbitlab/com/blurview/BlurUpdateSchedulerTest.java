@@ -0,0 +1,91 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BlurUpdateSchedulerTest {
+
+    private final BlurUpdateScheduler scheduler = new BlurUpdateScheduler();
+
+    @Test
+    void first_frame_is_always_updated() {
+        scheduler.setPolicy(BlurUpdatePolicy.manual());
+        assertTrue(scheduler.shouldUpdate(0, false, false));
+        assertFalse(scheduler.shouldUpdate(16, true, true));
+    }
+
+    @Test
+    void every_frame_updates_unconditionally() {
+        scheduler.shouldUpdate(0, false, false);
+        assertTrue(scheduler.shouldUpdate(16, false, false));
+        assertTrue(scheduler.shouldUpdate(32, false, false));
+    }
+
+    @Test
+    void on_content_change_skips_unchanged_frames() {
+        scheduler.setPolicy(BlurUpdatePolicy.onContentChange());
+        scheduler.shouldUpdate(0, false, false);
+        assertFalse(scheduler.shouldUpdate(16, false, true));
+        assertTrue(scheduler.shouldUpdate(32, true, false));
+    }
+
+    @Test
+    void while_animating_updates_only_animated_frames() {
+        scheduler.setPolicy(BlurUpdatePolicy.whileAnimating());
+        scheduler.shouldUpdate(0, false, false);
+        assertFalse(scheduler.shouldUpdate(16, true, false));
+        assertTrue(scheduler.shouldUpdate(32, false, true));
+    }
+
+    @Test
+    void manual_updates_only_on_request() {
+        scheduler.setPolicy(BlurUpdatePolicy.manual());
+        scheduler.shouldUpdate(0, false, false);
+        assertFalse(scheduler.shouldUpdate(16, true, true));
+        scheduler.requestUpdate();
+        assertTrue(scheduler.shouldUpdate(32, false, false));
+        assertFalse(scheduler.shouldUpdate(48, true, true));
+    }
+
+    @Test
+    void fixed_rate_limits_updates() {
+        // 30 Hz on a 120 Hz display
+        scheduler.setPolicy(BlurUpdatePolicy.fixedRate(30));
+        assertTrue(scheduler.shouldUpdate(0, true, false));
+        assertFalse(scheduler.shouldUpdate(8, true, false));
+        assertFalse(scheduler.shouldUpdate(16, true, false));
+        assertFalse(scheduler.shouldUpdate(25, true, false));
+        assertTrue(scheduler.shouldUpdate(33, true, false));
+    }
+
+    @Test
+    void fixed_rate_picks_up_skipped_change_later() {
+        scheduler.setPolicy(BlurUpdatePolicy.fixedRate(30));
+        scheduler.shouldUpdate(0, true, false);
+        assertFalse(scheduler.shouldUpdate(10, true, false));
+        assertEquals(23, scheduler.scheduleTrailingUpdate(10));
+        // Scheduled only once
+        assertFalse(scheduler.shouldUpdate(20, false, false));
+        assertEquals(BlurUpdateScheduler.NO_UPDATE, scheduler.scheduleTrailingUpdate(20));
+
+        assertTrue(scheduler.shouldUpdate(33, false, false));
+        assertEquals(BlurUpdateScheduler.NO_UPDATE, scheduler.scheduleTrailingUpdate(33));
+    }
+
+    @Test
+    void fixed_rate_ignores_unchanged_frames() {
+        scheduler.setPolicy(BlurUpdatePolicy.fixedRate(30));
+        scheduler.shouldUpdate(0, true, false);
+        assertFalse(scheduler.shouldUpdate(100, false, false));
+        assertEquals(BlurUpdateScheduler.NO_UPDATE, scheduler.scheduleTrailingUpdate(100));
+    }
+
+    @Test
+    void fixed_rate_must_be_positive() {
+        assertThrows(IllegalArgumentException.class, () -> BlurUpdatePolicy.fixedRate(0));
+    }
+}
@@ -0,0 +1,69 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class BoxBlurTest {
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 7;
+
+    @Test
+    void boxRadius_grows_with_blurRadius() {
+        assertEquals(1, BoxBlur.boxRadius(1f));
+        assertEquals(4, BoxBlur.boxRadius(10f));
+        assertEquals(10, BoxBlur.boxRadius(25f));
+        assertTrue(BoxBlur.boxRadius(5f) <= BoxBlur.boxRadius(6f));
+    }
+
+    @Test
+    void zero_radius_keeps_pixels() {
+        int[] pixels = spot();
+        BoxBlur.blur(pixels, new int[pixels.length], WIDTH, HEIGHT, 0);
+        assertArrayEquals(spot(), pixels);
+    }
+
+    @Test
+    void uniform_color_stays_the_same() {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        Arrays.fill(pixels, 0xFF336699);
+        BoxBlur.blur(pixels, new int[pixels.length], WIDTH, HEIGHT, 3);
+        for (int pixel : pixels) {
+            assertEquals(0xFF336699, pixel);
+        }
+    }
+
+    @Test
+    void spot_spreads_symmetrically() {
+        int[] pixels = spot();
+        BoxBlur.blur(pixels, new int[pixels.length], WIDTH, HEIGHT, 1);
+
+        int center = pixel(pixels, 4, 3);
+        assertTrue(center < 0xFF);
+        assertTrue(pixel(pixels, 3, 3) > 0);
+        assertTrue(center > pixel(pixels, 3, 3));
+        assertEquals(pixel(pixels, 3, 3), pixel(pixels, 5, 3));
+        assertEquals(pixel(pixels, 4, 2), pixel(pixels, 4, 4));
+        assertEquals(pixel(pixels, 2, 1), pixel(pixels, 6, 5));
+        // Alpha is not touched by the blue channel
+        assertEquals(0xFF, pixels[0] >>> 24);
+    }
+
+    /**
+     * Opaque black with a single blue pixel in the center
+     */
+    private static int[] spot() {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        Arrays.fill(pixels, 0xFF000000);
+        pixels[3 * WIDTH + 4] = 0xFF0000FF;
+        return pixels;
+    }
+
+    private static int pixel(int[] pixels, int x, int y) {
+        return pixels[y * WIDTH + x] & 0xFF;
+    }
+}
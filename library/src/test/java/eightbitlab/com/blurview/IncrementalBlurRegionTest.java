@@ -0,0 +1,79 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalBlurRegionTest {
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 80;
+
+    private final IncrementalBlurRegion region = new IncrementalBlurRegion();
+
+    @Test
+    void output_is_expanded_by_the_radius_and_input_by_twice_the_radius() {
+        region.expand(40, 30, 50, 40, 5, WIDTH, HEIGHT);
+        assertOutput(35, 25, 55, 45);
+        assertInput(30, 20, 60, 50);
+    }
+
+    @Test
+    void expansion_is_clamped_to_the_snapshot() {
+        region.expand(2, 0, 98, 5, 4, WIDTH, HEIGHT);
+        assertOutput(0, 0, WIDTH, 9);
+        assertInput(0, 0, WIDTH, 13);
+
+        region.expand(90, 70, WIDTH, HEIGHT, 6, WIDTH, HEIGHT);
+        assertOutput(84, 64, WIDTH, HEIGHT);
+        assertInput(78, 58, WIDTH, HEIGHT);
+    }
+
+    @Test
+    void input_always_contains_the_output() {
+        for (int radius = 0; radius < 30; radius += 3) {
+            region.expand(10, 60, 30, 75, radius, WIDTH, HEIGHT);
+            assertTrue(region.inputLeft <= region.outputLeft);
+            assertTrue(region.inputTop <= region.outputTop);
+            assertTrue(region.inputRight >= region.outputRight);
+            assertTrue(region.inputBottom >= region.outputBottom);
+        }
+    }
+
+    @Test
+    void zero_radius_keeps_the_changed_region() {
+        region.expand(10, 20, 30, 40, 0, WIDTH, HEIGHT);
+        assertOutput(10, 20, 30, 40);
+        assertInput(10, 20, 30, 40);
+    }
+
+    @Test
+    void small_change_is_worth_blurring_incrementally() {
+        // 10x10 change, 30x30 input of 8000 px
+        assertTrue(IncrementalBlurRegion.isWorthBlurring(10, 10, 5, WIDTH, HEIGHT));
+    }
+
+    @Test
+    void change_spreading_over_half_of_the_snapshot_is_not() {
+        // 40x40 change, 80x80 input
+        assertFalse(IncrementalBlurRegion.isWorthBlurring(40, 40, 10, WIDTH, HEIGHT));
+        // Full width strip, the input is clamped to the width, 100x40 is exactly a half
+        assertFalse(IncrementalBlurRegion.isWorthBlurring(WIDTH, 20, 5, WIDTH, HEIGHT));
+        assertTrue(IncrementalBlurRegion.isWorthBlurring(WIDTH, 19, 5, WIDTH, HEIGHT));
+    }
+
+    private void assertOutput(int left, int top, int right, int bottom) {
+        assertEquals(left, region.outputLeft, "output left");
+        assertEquals(top, region.outputTop, "output top");
+        assertEquals(right, region.outputRight, "output right");
+        assertEquals(bottom, region.outputBottom, "output bottom");
+    }
+
+    private void assertInput(int left, int top, int right, int bottom) {
+        assertEquals(left, region.inputLeft, "input left");
+        assertEquals(top, region.inputTop, "input top");
+        assertEquals(right, region.inputRight, "input right");
+        assertEquals(bottom, region.inputBottom, "input bottom");
+    }
+}
@@ -0,0 +1,57 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import android.graphics.Shader;
+
+import org.junit.jupiter.api.Test;
+
+class RenderEffectCacheTest {
+
+    @Test
+    void radii_within_a_quarter_pixel_share_the_key() {
+        long key = RenderEffectCache.blurKey(10f, Shader.TileMode.CLAMP);
+        assertEquals(key, RenderEffectCache.blurKey(10.1f, Shader.TileMode.CLAMP));
+        assertEquals(key, RenderEffectCache.blurKey(9.9f, Shader.TileMode.CLAMP));
+        assertNotEquals(key, RenderEffectCache.blurKey(10.25f, Shader.TileMode.CLAMP));
+        assertNotEquals(key, RenderEffectCache.blurKey(9.75f, Shader.TileMode.CLAMP));
+    }
+
+    @Test
+    void tile_mode_is_a_part_of_the_key() {
+        long clamp = RenderEffectCache.blurKey(10f, Shader.TileMode.CLAMP);
+        assertNotEquals(clamp, RenderEffectCache.blurKey(10f, Shader.TileMode.MIRROR));
+        assertNotEquals(clamp, RenderEffectCache.blurKey(10f, Shader.TileMode.DECAL));
+    }
+
+    @Test
+    void key_keeps_the_quantized_radius() {
+        assertEquals(10f, RenderEffectCache.blurRadius(RenderEffectCache.blurKey(10.1f, Shader.TileMode.CLAMP)));
+        assertEquals(10.25f, RenderEffectCache.blurRadius(RenderEffectCache.blurKey(10.2f, Shader.TileMode.DECAL)));
+        assertEquals(0f, RenderEffectCache.blurRadius(RenderEffectCache.blurKey(0f, Shader.TileMode.CLAMP)));
+        assertEquals(25f, RenderEffectCache.blurRadius(RenderEffectCache.blurKey(25f, Shader.TileMode.MIRROR)));
+    }
+
+    @Test
+    void fused_key_tells_the_noise_and_keeps_the_blur_key() {
+        long blurKey = RenderEffectCache.blurKey(16f, Shader.TileMode.CLAMP);
+        long withNoise = RenderEffectCache.fusedKey(blurKey, true);
+        long withoutNoise = RenderEffectCache.fusedKey(blurKey, false);
+
+        assertNotEquals(withNoise, withoutNoise);
+        assertEquals(1, withNoise & 1);
+        assertEquals(0, withoutNoise & 1);
+        // getFusedEffect creates the blur part from the key shifted back
+        assertEquals(blurKey, withNoise >>> 1);
+        assertEquals(blurKey, withoutNoise >>> 1);
+    }
+
+    @Test
+    void fused_keys_of_different_radii_differ() {
+        long small = RenderEffectCache.blurKey(4f, Shader.TileMode.CLAMP);
+        long large = RenderEffectCache.blurKey(20f, Shader.TileMode.CLAMP);
+        assertNotEquals(RenderEffectCache.fusedKey(small, true), RenderEffectCache.fusedKey(large, true));
+        assertNotEquals(RenderEffectCache.fusedKey(small, false), RenderEffectCache.fusedKey(large, false));
+    }
+}
@@ -0,0 +1,103 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ScrollShiftTest {
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 50;
+    private static final float SCALE = 4f;
+
+    private final ScrollShift shift = new ScrollShift();
+
+    @Test
+    void less_than_a_snapshot_pixel_is_carried_over() {
+        assertEquals(ScrollShift.NONE, shift.compute(3f, -3.5f, SCALE, SCALE, WIDTH, HEIGHT));
+        assertEquals(0, shift.dx);
+        assertEquals(0, shift.dy);
+        assertEquals(3f, shift.remainderX);
+        assertEquals(-3.5f, shift.remainderY);
+        assertExposed(0, 0, 0, 0);
+    }
+
+    @Test
+    void scroll_down_shifts_the_content_up_and_exposes_the_bottom() {
+        assertEquals(ScrollShift.SHIFT, shift.compute(0f, 10f, SCALE, SCALE, WIDTH, HEIGHT));
+        assertEquals(0, shift.dx);
+        assertEquals(-2, shift.dy);
+        assertEquals(0f, shift.remainderX);
+        assertEquals(2f, shift.remainderY);
+        assertExposed(0, HEIGHT - 2, WIDTH, HEIGHT);
+    }
+
+    @Test
+    void scroll_up_shifts_the_content_down_and_exposes_the_top() {
+        assertEquals(ScrollShift.SHIFT, shift.compute(0f, -10f, SCALE, SCALE, WIDTH, HEIGHT));
+        assertEquals(2, shift.dy);
+        assertEquals(-2f, shift.remainderY);
+        assertExposed(0, 0, WIDTH, 2);
+    }
+
+    @Test
+    void horizontal_scroll_exposes_a_column() {
+        assertEquals(ScrollShift.SHIFT, shift.compute(12f, 0f, SCALE, SCALE, WIDTH, HEIGHT));
+        assertEquals(-3, shift.dx);
+        assertEquals(0, shift.dy);
+        assertExposed(WIDTH - 3, 0, WIDTH, HEIGHT);
+
+        assertEquals(ScrollShift.SHIFT, shift.compute(-12f, 0f, SCALE, SCALE, WIDTH, HEIGHT));
+        assertEquals(3, shift.dx);
+        assertExposed(0, 0, 3, HEIGHT);
+    }
+
+    @Test
+    void diagonal_scroll_exposes_both_strips() {
+        assertEquals(ScrollShift.SHIFT, shift.compute(8f, -12f, SCALE, SCALE, WIDTH, HEIGHT));
+        assertEquals(-2, shift.dx);
+        assertEquals(3, shift.dy);
+        // A single rect has to cover the column on the right and the row on the top
+        assertExposed(0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    void scroll_by_the_snapshot_size_can_not_be_reused() {
+        assertEquals(ScrollShift.FULL, shift.compute(0f, HEIGHT * SCALE, SCALE, SCALE, WIDTH, HEIGHT));
+        assertExposed(0, 0, WIDTH, HEIGHT);
+        assertEquals(ScrollShift.FULL, shift.compute(-WIDTH * SCALE - 1, 0f, SCALE, SCALE, WIDTH, HEIGHT));
+        assertExposed(0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    void remainders_add_up_to_the_scroll() {
+        float scrolled = 0f;
+        int shifted = 0;
+        float pending = 0f;
+        for (int frame = 0; frame < 20; frame++) {
+            pending += 1.5f;
+            scrolled += 1.5f;
+            if (shift.compute(0f, pending, SCALE, SCALE, WIDTH, HEIGHT) == ScrollShift.SHIFT) {
+                shifted -= shift.dy;
+            }
+            pending = shift.remainderY;
+        }
+        assertEquals(scrolled, shifted * SCALE + pending, 0.001f);
+        assertEquals(7, shifted);
+    }
+
+    @Test
+    void non_uniform_scale_is_applied_per_axis() {
+        assertEquals(ScrollShift.SHIFT, shift.compute(9f, 9f, 3f, 4.5f, WIDTH, HEIGHT));
+        assertEquals(-3, shift.dx);
+        assertEquals(-2, shift.dy);
+        assertEquals(0f, shift.remainderX);
+        assertEquals(0f, shift.remainderY);
+    }
+
+    private void assertExposed(int left, int top, int right, int bottom) {
+        assertEquals(left, shift.exposedLeft, "left");
+        assertEquals(top, shift.exposedTop, "top");
+        assertEquals(right, shift.exposedRight, "right");
+        assertEquals(bottom, shift.exposedBottom, "bottom");
+    }
+}
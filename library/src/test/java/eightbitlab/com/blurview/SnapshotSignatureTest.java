@@ -0,0 +1,113 @@
+package eightbitlab.com.blurview;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SnapshotSignatureTest {
+    // 3x2 tiles, the last column and row are partial
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 20;
+    private static final int TILES = 6;
+
+    @Test
+    void tileCount_rounds_up() {
+        assertEquals(1, SnapshotSignature.tileCount(1));
+        assertEquals(1, SnapshotSignature.tileCount(16));
+        assertEquals(2, SnapshotSignature.tileCount(17));
+        assertEquals(3, SnapshotSignature.tileCount(WIDTH));
+    }
+
+    @Test
+    void identical_snapshots_have_equal_signatures() {
+        for (int phase = 0; phase < SnapshotSignature.DEFAULT_STEP; phase++) {
+            assertArrayEquals(signatures(pixels(), phase), signatures(pixels(), phase));
+        }
+    }
+
+    @Test
+    void changed_pixel_changes_only_its_tile() {
+        int[] changed = pixels();
+        // Row 17 is hashed in phase 1 with the default step, column 35 is in the last tile
+        changed[17 * WIDTH + 35] = 0xFF00FF00;
+
+        long[] original = signatures(pixels(), 1);
+        long[] result = signatures(changed, 1);
+        for (int tile = 0; tile < TILES; tile++) {
+            if (tile == 5) {
+                assertNotEquals(original[tile], result[tile]);
+            } else {
+                assertEquals(original[tile], result[tile], "tile " + tile);
+            }
+        }
+        // Not hashed in the other phase
+        assertArrayEquals(signatures(pixels(), 0), signatures(changed, 0));
+    }
+
+    @Test
+    void every_pixel_is_hashed_in_one_of_the_phases() {
+        long[][] original = new long[SnapshotSignature.DEFAULT_STEP][];
+        for (int phase = 0; phase < SnapshotSignature.DEFAULT_STEP; phase++) {
+            original[phase] = signatures(pixels(), phase);
+        }
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            int[] changed = pixels();
+            changed[i] = ~changed[i];
+            int tile = (i / WIDTH / 16) * 3 + (i % WIDTH) / 16;
+
+            boolean detected = false;
+            for (int phase = 0; phase < SnapshotSignature.DEFAULT_STEP; phase++) {
+                detected |= signatures(changed, phase)[tile] != original[phase][tile];
+            }
+            assertTrue(detected, "pixel " + i);
+        }
+    }
+
+    @Test
+    void hashing_a_tile_range_matches_the_full_computation() {
+        long[] full = signatures(pixels(), 0);
+        long[] partial = signatures(pixels(), 0);
+        // Middle column of tiles only, from a row buffer
+        int columns = SnapshotSignature.tileCount(WIDTH);
+        partial[1] = 0;
+        partial[4] = 0;
+        SnapshotSignature.resetTiles(partial, columns, 1, 1, 0, 1);
+        int[] pixels = pixels();
+        for (int y = 0; y < HEIGHT; y += SnapshotSignature.DEFAULT_STEP) {
+            SnapshotSignature.hashRow(pixels, y * WIDTH + 16, 16, 16, y, columns, partial);
+        }
+        assertArrayEquals(full, partial);
+    }
+
+    @Test
+    void step_one_detects_any_change() {
+        long[] original = new long[TILES];
+        SnapshotSignature.computeTiles(pixels(), WIDTH, HEIGHT, 1, 0, original);
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            int[] changed = pixels();
+            changed[i] = ~changed[i];
+            long[] result = new long[TILES];
+            SnapshotSignature.computeTiles(changed, WIDTH, HEIGHT, 1, 0, result);
+
+            int tile = (i / WIDTH / 16) * 3 + (i % WIDTH) / 16;
+            assertNotEquals(original[tile], result[tile]);
+        }
+    }
+
+    private static long[] signatures(int[] pixels, int phase) {
+        long[] signatures = new long[TILES];
+        SnapshotSignature.computeTiles(pixels, WIDTH, HEIGHT, SnapshotSignature.DEFAULT_STEP, phase, signatures);
+        return signatures;
+    }
+
+    private static int[] pixels() {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | (i * 0x010203);
+        }
+        return pixels;
+    }
+}